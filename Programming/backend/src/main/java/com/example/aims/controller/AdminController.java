@@ -1,14 +1,19 @@
 package com.example.aims.controller;
 
+import com.example.aims.dto.CatalogStatusDTO;
 import com.example.aims.dto.OrderDTO;
+import com.example.aims.dto.OrderPageDTO;
 import com.example.aims.dto.RegisterRequest;
 import com.example.aims.model.Users;
 import com.example.aims.repository.UsersRepository;
 import com.example.aims.service.AuthService;
 import com.example.aims.service.OrderService;
+import com.example.aims.service.catalog.ProductCatalog;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -19,11 +24,14 @@ public class AdminController {
     private final UsersRepository userRepository;
     private final AuthService authService;
     private final OrderService orderService;
+    private final ProductCatalog productCatalog;
 
-    public AdminController(UsersRepository userRepository, AuthService authService, OrderService orderService) {
+    public AdminController(UsersRepository userRepository, AuthService authService, OrderService orderService,
+                           ProductCatalog productCatalog) {
         this.userRepository = userRepository;
         this.authService = authService;
         this.orderService = orderService;
+        this.productCatalog = productCatalog;
     }
 
     @GetMapping("/users")
@@ -37,18 +45,36 @@ public class AdminController {
     }
 
     @GetMapping("/orders")
-    public ResponseEntity<List<OrderDTO>> getAllOrders() {
-        List<OrderDTO> orders = orderService.getOrdersByStatus("ALL");
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<OrderPageDTO> getAllOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(orderService.getOrderPage(status, customerId, from, to, after, limit));
     }
 
     @GetMapping("/orders/status/{status}")
-    public ResponseEntity<List<OrderDTO>> getOrdersByStatus(@PathVariable String status) {
-        return ResponseEntity.ok(orderService.getOrdersByStatus(status));
+    public ResponseEntity<OrderPageDTO> getOrdersByStatus(@PathVariable String status,
+                                                          @RequestParam(required = false) String after,
+                                                          @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(orderService.getOrderPage(status, null, null, null, after, limit));
     }
 
     @PutMapping("/orders/{orderId}/status")
     public ResponseEntity<OrderDTO> updateOrderStatus(@PathVariable String orderId, @RequestParam String status) {
         return ResponseEntity.ok(orderService.updateOrderStatus(orderId, status));
     }
-}
\ No newline at end of file
+
+    @GetMapping("/catalog")
+    public ResponseEntity<CatalogStatusDTO> getCatalogStatus() {
+        return ResponseEntity.ok(new CatalogStatusDTO(productCatalog.getVersion(), productCatalog.size()));
+    }
+
+    @PostMapping("/catalog/rebuild")
+    public ResponseEntity<CatalogStatusDTO> rebuildCatalog() {
+        long version = productCatalog.rebuild();
+        return ResponseEntity.ok(new CatalogStatusDTO(version, productCatalog.size()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.aims.controller;
 
 import com.example.aims.dto.CartItemDTO;
+import com.example.aims.dto.CartOperationDTO;
 import com.example.aims.dto.DeliveryInfoDTO;
 import com.example.aims.dto.OrderDTO;
 import com.example.aims.service.CartService;
@@ -50,6 +51,14 @@ public class CustomerController {
         return ResponseEntity.ok(cartService.updateCartItem(customerID, productId, quantity));
     }
 
+    @PatchMapping("/cart")
+    public ResponseEntity<List<CartItemDTO>> updateCart(@RequestBody List<CartOperationDTO> operations) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String customerID = authentication.getName();
+
+        return ResponseEntity.ok(cartService.applyOperations(customerID, operations));
+    }
+
     @DeleteMapping("/cart/{productId}")
     public ResponseEntity<Void> removeFromCart(@PathVariable String productId) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -1,21 +1,42 @@
 package com.example.aims.controller;
 
+import com.example.aims.dto.InventoryBalanceDTO;
+import com.example.aims.dto.InventoryMovementDTO;
 import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.ProductImportResultDTO;
+import com.example.aims.dto.ProductPatchDTO;
+import com.example.aims.dto.ProductPatchResultDTO;
 import com.example.aims.service.ProductService;
+import com.example.aims.service.bulk.ProductImportReader;
+import com.example.aims.service.bulk.ProductImportService;
+import com.example.aims.service.inventory.HotStockService;
+import com.example.aims.service.inventory.InventoryLedgerService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/manager")
 @CrossOrigin(origins = "*")
 public class ManagerController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final HotStockService hotStockService;
+    private final InventoryLedgerService inventoryLedger;
 
-    public ManagerController(ProductService productService) {
+    public ManagerController(ProductService productService, ProductImportService productImportService,
+                             HotStockService hotStockService, InventoryLedgerService inventoryLedger) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.hotStockService = hotStockService;
+        this.inventoryLedger = inventoryLedger;
     }
 
     @PostMapping("/products")
@@ -26,6 +47,23 @@ public class ManagerController {
         return ResponseEntity.ok(productService.createProduct(productDTO, managerID));
     }
 
+    @PostMapping(value = "/products/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ProductImportResultDTO> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String managerID = authentication.getName();
+
+        ProductImportReader.Format format = contentType.getSubtype().equals("csv")
+                ? ProductImportReader.Format.CSV
+                : ProductImportReader.Format.NDJSON;
+        return ResponseEntity.ok(productImportService.importProducts(body, format, managerID));
+    }
+
+    @PatchMapping("/products")
+    public ResponseEntity<ProductPatchResultDTO> patchProducts(@RequestBody List<ProductPatchDTO> patches) {
+        return ResponseEntity.ok(productService.patchProducts(patches));
+    }
+
     @PutMapping("/products/{id}")
     public ResponseEntity<ProductDTO> updateProduct(@PathVariable String id, @RequestBody ProductDTO productDTO) {
         return ResponseEntity.ok(productService.updateProduct(id, productDTO));
@@ -36,4 +74,27 @@ public class ManagerController {
         productService.deleteProduct(id);
         return ResponseEntity.noContent().build();
     }
+
+    @PutMapping("/products/{id}/hot-stock")
+    public ResponseEntity<Void> enableHotStock(@PathVariable String id, @RequestParam(defaultValue = "8") int shards) {
+        hotStockService.enable(id, shards);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/products/{id}/hot-stock")
+    public ResponseEntity<Void> disableHotStock(@PathVariable String id) {
+        hotStockService.disable(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/products/{id}/inventory")
+    public ResponseEntity<InventoryBalanceDTO> getInventoryBalance(@PathVariable String id) {
+        return ResponseEntity.ok(inventoryLedger.getBalance(id));
+    }
+
+    @GetMapping("/products/{id}/inventory/movements")
+    public ResponseEntity<List<InventoryMovementDTO>> getInventoryMovements(
+            @PathVariable String id, @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(inventoryLedger.getMovements(id, limit));
+    }
 }
\ No newline at end of file
@@ -1,7 +1,16 @@
 package com.example.aims.controller;
 
+import com.example.aims.dto.FacetBrowseDTO;
+import com.example.aims.dto.ProductBatchDTO;
+import com.example.aims.dto.ProductChangeFeedDTO;
 import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.ProductPageDTO;
+import com.example.aims.dto.SuggestionDTO;
+import com.example.aims.exception.BadRequestException;
 import com.example.aims.service.ProductService;
+import com.example.aims.service.catalog.ProductCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -9,10 +18,19 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/products")
@@ -20,10 +38,18 @@ import java.util.List;
 @Tag(name = "Product", description = "Product management APIs")
 public class ProductController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final ProductService productService;
+    private final ProductCatalog productCatalog;
+    private final ObjectWriter productWriter;
+    // Keeps tags issued before a restart from matching, since catalog versions restart at 1
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductCatalog productCatalog, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.productCatalog = productCatalog;
+        this.productWriter = objectMapper.writerFor(ProductDTO.class);
     }
 
     @Operation(summary = "Get all products", description = "Retrieves a list of all available products")
@@ -31,10 +57,14 @@ public class ProductController {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved the list of products",
                 content = @Content(mediaType = "application/json", 
                 schema = @Schema(implementation = ProductDTO.class))),
+        @ApiResponse(responseCode = "304", description = "Catalog unchanged since the ETag sent in If-None-Match"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
+    public ResponseEntity<List<ProductDTO>> getAllProducts(WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
         return ResponseEntity.ok(productService.getAllProducts());
     }
 
@@ -43,16 +73,49 @@ public class ProductController {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved the product",
                 content = @Content(mediaType = "application/json", 
                 schema = @Schema(implementation = ProductDTO.class))),
+        @ApiResponse(responseCode = "304", description = "Product unchanged since the ETag sent in If-None-Match"),
         @ApiResponse(responseCode = "404", description = "Product not found"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO> getProductById(
             @Parameter(description = "ID of the product to be retrieved", required = true)
-            @PathVariable String id) {
+            @PathVariable String id,
+            WebRequest webRequest) {
+        if (isProductNotModified(webRequest, id)) {
+            return null;
+        }
         return ResponseEntity.ok(productService.getProductById(id));
     }
 
+    @Operation(summary = "Get several products by ID", description = "Retrieves products by a comma-separated list of IDs, in request order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Found products in request order, plus the IDs that were not found",
+                content = @Content(mediaType = "application/json", 
+                schema = @Schema(implementation = ProductBatchDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Too many IDs"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/batch")
+    public ResponseEntity<ProductBatchDTO> getProductsByIds(
+            @Parameter(description = "Comma-separated IDs of the products to be retrieved", required = true)
+            @RequestParam List<String> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    @Operation(summary = "Get several products by ID (long lists)", description = "Same as GET /batch, with the IDs sent as a JSON array body")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Found products in request order, plus the IDs that were not found",
+                content = @Content(mediaType = "application/json", 
+                schema = @Schema(implementation = ProductBatchDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Too many IDs"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<ProductBatchDTO> getProductsByIdList(@RequestBody List<String> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
     @Operation(summary = "Get products by category", description = "Retrieves products by their category")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved the products",
@@ -63,11 +126,15 @@ public class ProductController {
     @GetMapping("/category/{category}")
     public ResponseEntity<List<ProductDTO>> getProductsByCategory(
             @Parameter(description = "Category of products to be retrieved (e.g., book, cd, dvd)", required = true)
-            @PathVariable String category) {
+            @PathVariable String category,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
         return ResponseEntity.ok(productService.getProductsByCategory(category));
     }
 
-    @Operation(summary = "Search products", description = "Searches for products by keyword in title")
+    @Operation(summary = "Search products", description = "Searches for products by keyword in title, description, authors, artist and director, best match first")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved the products",
                 content = @Content(mediaType = "application/json", 
@@ -77,7 +144,206 @@ public class ProductController {
     @GetMapping("/search")
     public ResponseEntity<List<ProductDTO>> searchProducts(
             @Parameter(description = "Keyword to search in product titles", required = true)
-            @RequestParam String keyword) {
+            @RequestParam String keyword,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
         return ResponseEntity.ok(productService.searchProducts(keyword));
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Get a page of products", description = "Retrieves products page by page using an opaque cursor")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the page of products",
+                content = @Content(mediaType = "application/json", 
+                schema = @Schema(implementation = ProductPageDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor, sort or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/page")
+    public ResponseEntity<ProductPageDTO> getProductPage(
+            @Parameter(description = "Cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Maximum number of products in the page (1-100, default 20)")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Sort order: title (default) or price")
+            @RequestParam(required = false) String sort,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok(productService.getProductPage(null, null, sort, after, limit));
+    }
+
+    @Operation(summary = "Get a page of products by category", description = "Retrieves products of a category page by page using an opaque cursor")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the page of products",
+                content = @Content(mediaType = "application/json", 
+                schema = @Schema(implementation = ProductPageDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor, sort or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/category/{category}/page")
+    public ResponseEntity<ProductPageDTO> getProductPageByCategory(
+            @Parameter(description = "Category of products to be retrieved (e.g., book, cd, dvd)", required = true)
+            @PathVariable String category,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Maximum number of products in the page (1-100, default 20)")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Sort order: title (default) or price")
+            @RequestParam(required = false) String sort,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok(productService.getProductPage(category, null, sort, after, limit));
+    }
+
+    @Operation(summary = "Search products page by page", description = "Searches for products like /search, best match first, page by page using an opaque cursor")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the page of products",
+                content = @Content(mediaType = "application/json", 
+                schema = @Schema(implementation = ProductPageDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor, sort or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/search/page")
+    public ResponseEntity<ProductPageDTO> searchProductPage(
+            @Parameter(description = "Keyword to search in product titles", required = true)
+            @RequestParam String keyword,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Maximum number of products in the page (1-100, default 20)")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Sort order used only while the search index is loading: title (default) or price")
+            @RequestParam(required = false) String sort,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok(productService.getProductPage(null, keyword, sort, after, limit));
+    }
+
+    @Operation(summary = "Export all products", description = "Streams the full catalog, including book/CD/DVD details, as newline-delimited JSON")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Catalog stream, one product per line",
+                content = @Content(mediaType = "application/x-ndjson", 
+                schema = @Schema(implementation = ProductDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = outputStream -> productService.exportProducts(product -> {
+            try {
+                outputStream.write(productWriter.writeValueAsBytes(product));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    @Operation(summary = "Suggest products", description = "Suggests product titles and author/artist names starting with a prefix, most popular first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the suggestions",
+                content = @Content(mediaType = "application/json", 
+                schema = @Schema(implementation = SuggestionDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggestProducts(
+            @Parameter(description = "Text typed so far", required = true)
+            @RequestParam String prefix,
+            @Parameter(description = "Maximum number of suggestions (1-50, default 10)")
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
+    }
+
+    @Operation(summary = "Browse products by facets",
+            description = "Filters products by category, genre, language, coverType, musicType, discType and priceBand "
+                    + "(repeat a parameter to accept several values) and returns the facet counts in the same response")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the products and facet counts",
+                content = @Content(mediaType = "application/json", 
+                schema = @Schema(implementation = FacetBrowseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Unknown facet or invalid limit/offset"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/browse")
+    public ResponseEntity<FacetBrowseDTO> browseProducts(
+            @Parameter(description = "Facet filters, e.g. genre=Fiction&genre=Drama&priceBand=0-100000")
+            @RequestParam MultiValueMap<String, String> params,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+        Map<String, List<String>> filters = new HashMap<>(params);
+        Integer limit = parseIntParam(filters.remove("limit"));
+        Integer offset = parseIntParam(filters.remove("offset"));
+        return ResponseEntity.ok(productService.browseProducts(filters, limit, offset));
+    }
+
+    @Operation(summary = "Get product changes",
+            description = "Returns product creations, updates and deletions committed after the change with sequence number \"since\", "
+                    + "oldest transaction first, so consumers can sync incrementally instead of re-reading the catalog")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the changes",
+                content = @Content(mediaType = "application/json", 
+                schema = @Schema(implementation = ProductChangeFeedDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid since or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/changes")
+    public ResponseEntity<ProductChangeFeedDTO> getProductChanges(
+            @Parameter(description = "Sequence number of the last change already applied (default 0, from the beginning)")
+            @RequestParam(required = false) Long since,
+            @Parameter(description = "Maximum number of changes (1-1000, default 100)")
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.getProductChanges(since, limit));
+    }
+
+    /**
+     * Answers 304 when the client's tag matches the current catalog version. Any product change
+     * advances that version, so list responses need no database access or serialization to validate.
+     * On a miss the ETag and Last-Modified headers are set for the full response.
+     */
+    private boolean isCatalogNotModified(WebRequest webRequest) {
+        if (!productCatalog.isLoaded()) {
+            return false;
+        }
+        // Read the version before the body is built, so a tag never claims newer data than it covers
+        String etag = "\"" + bootId + "-" + productCatalog.getVersion() + "\"";
+        return webRequest.checkNotModified(etag, productCatalog.getLastModified());
+    }
+
+    private boolean isProductNotModified(WebRequest webRequest, String id) {
+        if (!productCatalog.isLoaded()) {
+            return false;
+        }
+        Optional<Long> version = productCatalog.getProductVersion(id);
+        Optional<Long> lastModified = productCatalog.getProductLastModified(id);
+        if (version.isEmpty() || lastModified.isEmpty()) {
+            return false;
+        }
+        String etag = "\"" + bootId + "-" + id + "-" + version.get() + "\"";
+        return webRequest.checkNotModified(etag, lastModified.get());
+    }
+
+    private Integer parseIntParam(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(values.get(0));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid number: " + values.get(0));
+        }
+    }
+}
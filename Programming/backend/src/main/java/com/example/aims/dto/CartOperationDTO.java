@@ -0,0 +1,16 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationDTO {
+    // "add", "set" or "remove"
+    private String op;
+    private String productID;
+    // Ignored for "remove"
+    private Integer quantity;
+}
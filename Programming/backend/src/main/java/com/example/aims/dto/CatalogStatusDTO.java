@@ -0,0 +1,13 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStatusDTO {
+    private long version;
+    private int productCount;
+}
@@ -52,6 +52,21 @@ public class DeliveryInfoDTO {
         return addressDetail;
     }
 
+    // ✅ Getter for recipientName
+    public String getRecipientName() {
+        return recipientName;
+    }
+
+    // ✅ Getter for mail
+    public String getMail() {
+        return mail;
+    }
+
+    // ✅ Getter for phoneNumber
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
     // ✅ Setter for city
     public void setCity(String city) {
         this.city = city;
@@ -66,4 +81,19 @@ public class DeliveryInfoDTO {
     public void setAddressDetail(String addressDetail) {
         this.addressDetail = addressDetail;
     }
+
+    // ✅ Setter for recipientName
+    public void setRecipientName(String recipientName) {
+        this.recipientName = recipientName;
+    }
+
+    // ✅ Setter for mail
+    public void setMail(String mail) {
+        this.mail = mail;
+    }
+
+    // ✅ Setter for phoneNumber
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
 }
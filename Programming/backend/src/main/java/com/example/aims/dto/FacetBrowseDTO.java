@@ -0,0 +1,19 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetBrowseDTO {
+    private List<ProductDTO> items;
+    // Number of products matching all filters
+    private int total;
+    // facet -> (value -> number of products that would match if this value were selected)
+    private Map<String, Map<String, Integer>> facets;
+}
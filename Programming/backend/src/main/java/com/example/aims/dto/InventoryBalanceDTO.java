@@ -0,0 +1,22 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryBalanceDTO {
+    private String productID;
+    // Stock according to the ledger: snapshotBalance + tailDelta
+    private int balance;
+    private int snapshotBalance;
+    // Null if the product has not been snapshotted yet
+    private Date snapshotTakenAt;
+    // Sum of the movements recorded after the snapshot
+    private int tailDelta;
+    private int tailMovements;
+}
@@ -0,0 +1,22 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryMovementDTO {
+    private long seq;
+    private String productID;
+    // Signed change in stock
+    private int delta;
+    // SALE, RESTOCK or ADJUSTMENT
+    private String reason;
+    // Order id for sales, null otherwise
+    private String reference;
+    private Date recordedAt;
+}
@@ -3,6 +3,7 @@ package com.example.aims.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import java.util.Date;
 import java.util.List;
 
 @Data
@@ -12,6 +13,7 @@ public class OrderDTO {
     private String id;
     private String customerID;
     private String status;
+    private Date createdAt;
     private List<OrderItemDTO> items;
     private DeliveryInfoDTO deliveryInfo;
     private Double totalPrice;
@@ -0,0 +1,16 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchDTO {
+    // Found products, in the order they were requested
+    private List<ProductDTO> products;
+    private List<String> missingIds;
+}
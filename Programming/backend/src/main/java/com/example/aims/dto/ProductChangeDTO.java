@@ -0,0 +1,20 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangeDTO {
+    private long seq;
+    private String productID;
+    // CREATED, UPDATED or DELETED
+    private String type;
+    private Date changedAt;
+    // Product as of this change, null for DELETED
+    private ProductDTO product;
+}
@@ -0,0 +1,17 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangeFeedDTO {
+    private List<ProductChangeDTO> changes;
+    // Pass as "since" on the next call; equals the request's "since" when there was nothing new
+    private long nextSince;
+    private boolean hasMore;
+}
@@ -23,6 +23,8 @@ public class ProductDTO {
     private String dimensions;
     private Double weight;
     private String imageURL;
+    // Required to update: send back the version that was read; a stale version is rejected with 409
+    private Long version;
     
     // Additional fields for specific product types
     // Book fields
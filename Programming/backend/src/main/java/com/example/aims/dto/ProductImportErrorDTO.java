@@ -0,0 +1,15 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportErrorDTO {
+    // Line of the file the row starts on, 1-based
+    private int line;
+    private String productID;
+    private String message;
+}
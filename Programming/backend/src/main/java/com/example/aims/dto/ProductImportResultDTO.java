@@ -0,0 +1,17 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDTO {
+    // Data rows read from the file, header excluded
+    private int received;
+    private int imported;
+    private List<ProductImportErrorDTO> errors;
+}
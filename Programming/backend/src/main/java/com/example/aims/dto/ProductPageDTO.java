@@ -0,0 +1,16 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+    private List<ProductDTO> items;
+    // Cursor to pass as "after" for the next page, null on the last page
+    private String nextCursor;
+}
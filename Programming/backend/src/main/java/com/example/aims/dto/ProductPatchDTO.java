@@ -0,0 +1,16 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPatchDTO {
+    private String productID;
+    // Null fields are left unchanged
+    private Double price;
+    private Integer quantity;
+    private Double value;
+}
@@ -0,0 +1,18 @@
+package com.example.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+    private String text;
+    // title, author or artist
+    private String type;
+    // Set for title suggestions only
+    private String productID;
+    // Units sold across the products behind this suggestion
+    private long popularity;
+}
@@ -0,0 +1,18 @@
+package com.example.aims.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Published by checkout inside its transaction, once the order lines are saved.
+ * Listeners use {@code @TransactionalEventListener} so they only count committed orders.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderPlacedEvent {
+    private final String orderId;
+    // productID -> quantity ordered
+    private final Map<String, Integer> quantities;
+}
@@ -0,0 +1,40 @@
+package com.example.aims.event;
+
+import com.example.aims.dto.ProductDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by product write paths inside their transaction.
+ * In-memory read models listen with {@code @TransactionalEventListener} so they only see committed changes.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final String productId;
+    // Fully mapped product after the change, null for DELETED
+    private final ProductDTO product;
+    // Product version the change committed, so read models can drop events that arrive out of order
+    private final Long version;
+
+    public static ProductChangedEvent created(ProductDTO product) {
+        return new ProductChangedEvent(Type.CREATED, product.getProductID(), product, product.getVersion());
+    }
+
+    public static ProductChangedEvent updated(ProductDTO product) {
+        return new ProductChangedEvent(Type.UPDATED, product.getProductID(), product, product.getVersion());
+    }
+
+    public static ProductChangedEvent deleted(String productId, Long version) {
+        return new ProductChangedEvent(Type.DELETED, productId, null, version);
+    }
+}
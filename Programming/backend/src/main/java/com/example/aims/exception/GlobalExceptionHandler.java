@@ -4,6 +4,7 @@ import com.example.aims.mapper.ApiExceptionMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.validation.FieldError;
@@ -35,6 +36,25 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiException> handleConflictException(ConflictException e) {
+        return new ResponseEntity<>(
+                apiExceptionMapper.mapToApiException(e, HttpStatus.CONFLICT),
+                HttpStatus.CONFLICT
+        );
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ApiException> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException e) {
+        return new ResponseEntity<>(
+                apiExceptionMapper.mapToApiException(
+                        "The resource was modified concurrently, reload it and try again",
+                        HttpStatus.CONFLICT
+                ),
+                HttpStatus.CONFLICT
+        );
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ApiException> handleBadCredentialsException(BadCredentialsException e) {
         return new ResponseEntity<>(
@@ -6,8 +6,25 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class ProductFactory {
+    /**
+     * Builds the Book, CD or DVD matching the DTO's category, with its base and type-specific fields.
+     * Other categories get a plain Product.
+     */
     public Product createProduct(ProductDTO dto) {
-        Product product = new Product();
+        Product product;
+        switch (dto.getCategory().toLowerCase()) {
+            case "book":
+                product = createBook(dto);
+                break;
+            case "cd":
+                product = createCD(dto);
+                break;
+            case "dvd":
+                product = createDVD(dto);
+                break;
+            default:
+                product = new Product();
+        }
         product.setProductID(dto.getProductID());
         product.setCategory(dto.getCategory());
         product.setTitle(dto.getTitle());
@@ -23,10 +40,24 @@ public class ProductFactory {
         return product;
     }
 
-    public Book createBook(ProductDTO dto, Product product) {
+    /**
+     * Entity class a product of the given category is stored as.
+     */
+    public Class<? extends Product> typeOf(String category) {
+        switch (category.toLowerCase()) {
+            case "book":
+                return Book.class;
+            case "cd":
+                return CD.class;
+            case "dvd":
+                return DVD.class;
+            default:
+                return Product.class;
+        }
+    }
+
+    private Book createBook(ProductDTO dto) {
         Book book = new Book();
-        book.setProductID(product.getProductID());
-        book.setProduct(product);
         book.setCoverType(dto.getCoverType());
         book.setAuthors(dto.getAuthors());
         book.setPublisher(dto.getPublisher());
@@ -37,10 +68,8 @@ public class ProductFactory {
         return book;
     }
 
-    public CD createCD(ProductDTO dto, Product product) {
+    private CD createCD(ProductDTO dto) {
         CD cd = new CD();
-        cd.setProductID(product.getProductID());
-        cd.setProduct(product);
         cd.setTracklist(dto.getTracklist());
         cd.setArtist(dto.getArtist());
         cd.setReleaseDate(dto.getReleaseDate());
@@ -49,10 +78,8 @@ public class ProductFactory {
         return cd;
     }
 
-    public DVD createDVD(ProductDTO dto, Product product) {
+    private DVD createDVD(ProductDTO dto) {
         DVD dvd = new DVD();
-        dvd.setProductID(product.getProductID());
-        dvd.setProduct(product);
         dvd.setDiscType(dto.getDiscType());
         dvd.setRuntime(dto.getRuntime());
         dvd.setStudio(dto.getStudio());
@@ -63,4 +90,4 @@ public class ProductFactory {
         dvd.setGenre(dto.getGenre());
         return dvd;
     }
-} 
\ No newline at end of file
+}
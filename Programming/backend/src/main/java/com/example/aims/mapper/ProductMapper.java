@@ -2,63 +2,25 @@ package com.example.aims.mapper;
 
 import com.example.aims.dto.ProductDTO;
 import com.example.aims.model.*;
-import com.example.aims.repository.*;
-
-import lombok.RequiredArgsConstructor;
 
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Component;
 
 @Component
-@RequiredArgsConstructor
 public class ProductMapper {
-    private final BookRepository bookRepository;
-    private final CDRepository cdRepository;
-    private final DVDRepository dvdRepository;
 
     public ProductDTO toDTO(Product product) {
-        ProductDTO dto = new ProductDTO();
-        dto.setProductID(product.getProductID());
-        dto.setCategory(product.getCategory());
-        dto.setTitle(product.getTitle());
-        dto.setValue(product.getValue());
-        dto.setPrice(product.getPrice());
-        dto.setQuantity(product.getQuantity());
-        dto.setDescription(product.getDescription());
-        dto.setBarcode(product.getBarcode());
-        dto.setWarehouseEntryDate(product.getWarehouseEntryDate());
-        dto.setDimensions(product.getDimensions());
-        dto.setWeight(product.getWeight());
-        dto.setImageURL(product.getImageURL());
+        ProductDTO dto = toBaseDTO(product);
         
-        if ("book".equalsIgnoreCase(product.getCategory())) {
-            bookRepository.findById(product.getProductID()).ifPresent(book -> {
-                dto.setCoverType(book.getCoverType());
-                dto.setAuthors(book.getAuthors());
-                dto.setPublisher(book.getPublisher());
-                dto.setNumberOfPages(book.getNumberOfPages());
-                dto.setLanguage(book.getLanguage());
-                dto.setGenre(book.getGenre());
-                dto.setPubDate(book.getPubDate());
-            });
-        } else if ("cd".equalsIgnoreCase(product.getCategory())) {
-            cdRepository.findById(product.getProductID()).ifPresent(cd -> {
-                dto.setTracklist(cd.getTracklist());
-                dto.setArtist(cd.getArtist());
-                dto.setReleaseDate(cd.getReleaseDate());
-                dto.setRecordLabel(cd.getRecordLabel());
-                dto.setMusicType(cd.getMusicType());
-            });
-        } else if ("dvd".equalsIgnoreCase(product.getCategory())) {
-            dvdRepository.findById(product.getProductID()).ifPresent(dvd -> {
-                dto.setDiscType(dvd.getDiscType());
-                dto.setRuntime(dvd.getRuntime());
-                dto.setStudio(dvd.getStudio());
-                dto.setDirector(dvd.getDirector());
-                dto.setSubtitle(dvd.getSubtitle());
-                dto.setReleaseDate(dvd.getReleaseDate());
-                dto.setLanguage(dvd.getLanguage());
-                dto.setGenre(dvd.getGenre());
-            });
+        // Products are loaded as their Book/CD/DVD subclass, so the details are already in hand.
+        // A lazy reference is a proxy of Product and has to be unwrapped to see the subclass.
+        Object entity = Hibernate.unproxy(product);
+        if (entity instanceof Book book) {
+            applyBook(dto, book);
+        } else if (entity instanceof CD cd) {
+            applyCD(dto, cd);
+        } else if (entity instanceof DVD dvd) {
+            applyDVD(dto, dvd);
         }
         
         return dto;
@@ -80,4 +42,51 @@ public class ProductMapper {
         product.setImageURL(dto.getImageURL());
         return product;
     }
-} 
\ No newline at end of file
+
+    private ProductDTO toBaseDTO(Product product) {
+        ProductDTO dto = new ProductDTO();
+        dto.setProductID(product.getProductID());
+        dto.setCategory(product.getCategory());
+        dto.setTitle(product.getTitle());
+        dto.setValue(product.getValue());
+        dto.setPrice(product.getPrice());
+        dto.setQuantity(product.getQuantity());
+        dto.setDescription(product.getDescription());
+        dto.setBarcode(product.getBarcode());
+        dto.setWarehouseEntryDate(product.getWarehouseEntryDate());
+        dto.setDimensions(product.getDimensions());
+        dto.setWeight(product.getWeight());
+        dto.setImageURL(product.getImageURL());
+        dto.setVersion(product.getVersion());
+        return dto;
+    }
+
+    private void applyBook(ProductDTO dto, Book book) {
+        dto.setCoverType(book.getCoverType());
+        dto.setAuthors(book.getAuthors());
+        dto.setPublisher(book.getPublisher());
+        dto.setNumberOfPages(book.getNumberOfPages());
+        dto.setLanguage(book.getLanguage());
+        dto.setGenre(book.getGenre());
+        dto.setPubDate(book.getPubDate());
+    }
+
+    private void applyCD(ProductDTO dto, CD cd) {
+        dto.setTracklist(cd.getTracklist());
+        dto.setArtist(cd.getArtist());
+        dto.setReleaseDate(cd.getReleaseDate());
+        dto.setRecordLabel(cd.getRecordLabel());
+        dto.setMusicType(cd.getMusicType());
+    }
+
+    private void applyDVD(ProductDTO dto, DVD dvd) {
+        dto.setDiscType(dvd.getDiscType());
+        dto.setRuntime(dvd.getRuntime());
+        dto.setStudio(dvd.getStudio());
+        dto.setDirector(dvd.getDirector());
+        dto.setSubtitle(dvd.getSubtitle());
+        dto.setReleaseDate(dvd.getReleaseDate());
+        dto.setLanguage(dvd.getLanguage());
+        dto.setGenre(dvd.getGenre());
+    }
+}
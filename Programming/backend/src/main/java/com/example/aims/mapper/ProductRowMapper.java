@@ -0,0 +1,76 @@
+package com.example.aims.mapper;
+
+import com.example.aims.dto.ProductDTO;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a Product row left-joined with its Book, CD and DVD rows straight to a ProductDTO.
+ * Column aliases must match {@link #SELECT_WITH_DETAILS}.
+ */
+public class ProductRowMapper implements RowMapper<ProductDTO> {
+
+    public static final String SELECT_WITH_DETAILS =
+            "SELECT p.productID, p.category, p.title, p.value, p.price, p.quantity, p.description, p.barcode, " +
+            "p.warehouseEntryDate, p.dimensions, p.weight, p.imageURL, p.version, " +
+            "b.coverType, b.authors, b.publisher, b.numberOfPages, b.language AS bookLanguage, " +
+            "b.genre AS bookGenre, b.pubDate, " +
+            "c.tracklist, c.artist, c.releaseDate AS cdReleaseDate, c.recordLabel, c.musicType, " +
+            "d.discType, d.runtime, d.studio, d.director, d.subtitle, d.releaseDate AS dvdReleaseDate, " +
+            "d.language AS dvdLanguage, d.genre AS dvdGenre " +
+            "FROM Product p " +
+            "LEFT JOIN Book b ON b.productID = p.productID " +
+            "LEFT JOIN CD c ON c.productID = p.productID " +
+            "LEFT JOIN DVD d ON d.productID = p.productID";
+
+    // Soft-deleted products are left out; more conditions can be appended with " AND ..."
+    public static final String SELECT_LIVE_WITH_DETAILS = SELECT_WITH_DETAILS + " WHERE p.deleted = FALSE";
+
+    @Override
+    public ProductDTO mapRow(ResultSet rs, int rowNum) throws SQLException {
+        ProductDTO dto = new ProductDTO();
+        dto.setProductID(rs.getString("productID"));
+        dto.setCategory(rs.getString("category"));
+        dto.setTitle(rs.getString("title"));
+        dto.setValue(rs.getObject("value", Double.class));
+        dto.setPrice(rs.getObject("price", Double.class));
+        dto.setQuantity(rs.getObject("quantity", Integer.class));
+        dto.setDescription(rs.getString("description"));
+        dto.setBarcode(rs.getString("barcode"));
+        dto.setWarehouseEntryDate(rs.getDate("warehouseEntryDate"));
+        dto.setDimensions(rs.getString("dimensions"));
+        dto.setWeight(rs.getObject("weight", Double.class));
+        dto.setImageURL(rs.getString("imageURL"));
+        dto.setVersion(rs.getObject("version", Long.class));
+
+        String category = dto.getCategory();
+        if ("book".equalsIgnoreCase(category)) {
+            dto.setCoverType(rs.getString("coverType"));
+            dto.setAuthors(rs.getString("authors"));
+            dto.setPublisher(rs.getString("publisher"));
+            dto.setNumberOfPages(rs.getObject("numberOfPages", Integer.class));
+            dto.setLanguage(rs.getString("bookLanguage"));
+            dto.setGenre(rs.getString("bookGenre"));
+            dto.setPubDate(rs.getDate("pubDate"));
+        } else if ("cd".equalsIgnoreCase(category)) {
+            dto.setTracklist(rs.getString("tracklist"));
+            dto.setArtist(rs.getString("artist"));
+            dto.setReleaseDate(rs.getDate("cdReleaseDate"));
+            dto.setRecordLabel(rs.getString("recordLabel"));
+            dto.setMusicType(rs.getString("musicType"));
+        } else if ("dvd".equalsIgnoreCase(category)) {
+            dto.setDiscType(rs.getString("discType"));
+            dto.setRuntime(rs.getString("runtime"));
+            dto.setStudio(rs.getString("studio"));
+            dto.setDirector(rs.getString("director"));
+            dto.setSubtitle(rs.getString("subtitle"));
+            dto.setReleaseDate(rs.getDate("dvdReleaseDate"));
+            dto.setLanguage(rs.getString("dvdLanguage"));
+            dto.setGenre(rs.getString("dvdGenre"));
+        }
+        return dto;
+    }
+}
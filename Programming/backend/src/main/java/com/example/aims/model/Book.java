@@ -1,25 +1,20 @@
 package com.example.aims.model;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.util.Date;
 
 @Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
 @Table(name = "Book")
-public class Book {
-    
-    @Id
-    private String productID;
-    
-    @OneToOne
-    @MapsId
-    @JoinColumn(name = "productID")
-    private Product product;
+@PrimaryKeyJoinColumn(name = "productID")
+public class Book extends Product {
     
     private String coverType;
     private String authors;
@@ -7,6 +7,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.Date;
 import java.util.Objects;
 
 @Data
@@ -66,6 +67,8 @@ public class Order {
     private String province;
     private Double totalAmount;
     private DeliveryInfo deliveryInfo;
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
 
     public String checkOrderStatus(){
         if(!Objects.equals(this.status, "PENDING") && !Objects.equals(this.status, "REJECTED") && !Objects.equals(this.status, "APPROVED")){
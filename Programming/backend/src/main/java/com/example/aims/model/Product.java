@@ -12,6 +12,7 @@ import java.util.Date;
 @AllArgsConstructor
 @Entity
 @Table(name = "Product")
+@Inheritance(strategy = InheritanceType.JOINED)
 
 /**
  * ✅ Represents a product in the system.
@@ -50,6 +51,15 @@ public class Product {
     private String imageURL;              
     private boolean isRushEligible; 
 
+    // Bumped on every update; Hibernate adds "AND version = ?" to the UPDATE and fails on a stale copy
+    @Version
+    private Long version;
+
+    // Soft delete: the row stays for order history until the tombstone compactor purges it
+    private boolean deleted;
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date deletedAt;
+
 
     // ✅ Constructor with all fields — convenient for manual creation
     public Product(String productID, String title, boolean isRushEligible) {
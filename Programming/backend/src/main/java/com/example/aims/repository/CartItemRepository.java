@@ -1,14 +1,27 @@
 package com.example.aims.repository;
 
+import com.example.aims.dto.CartItemDTO;
 import com.example.aims.model.CartItem;
-import com.example.aims.model.Users;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface CartItemRepository extends JpaRepository<CartItem, CartItem.CartItemId> {
-    List<CartItem> findByCustomer(Users customer);
-    void deleteByCustomer(Users customer);
+public interface CartItemRepository extends JpaRepository<CartItem, CartItem.CartItemId>, CartItemRepositoryCustom {
+    // The customer's cart joined to its live products, in one statement and without loading Users
+    @Query("SELECT new com.example.aims.dto.CartItemDTO(p.productID, p.title, p.price, c.quantity, p.imageURL) " +
+           "FROM CartItem c JOIN c.product p WHERE c.id.customerID = :customerId AND p.deleted = false")
+    List<CartItemDTO> findCartItemDTOsByCustomerId(@Param("customerId") String customerId);
+
+    // (productID, quantity) pairs, without loading the customer or the products
+    @Query("SELECT c.id.productID, c.quantity FROM CartItem c WHERE c.id.customerID = :customerId")
+    List<Object[]> findQuantitiesByCustomerId(@Param("customerId") String customerId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.id.productID = :productId")
+    void deleteByProductId(@Param("productId") String productId);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.example.aims.repository;
+
+import java.util.Map;
+
+public interface CartItemRepositoryCustom {
+
+    /**
+     * Replaces the stored cart of every customer in {@code carts} (customer id -> product id -> quantity)
+     * with one DELETE and one JDBC batch of inserts. Lines for products that no longer exist or were
+     * deleted are dropped instead of failing the batch.
+     */
+    void replaceCarts(Map<String, Map<String, Integer>> carts);
+}
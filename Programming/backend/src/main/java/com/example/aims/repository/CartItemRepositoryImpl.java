@@ -0,0 +1,37 @@
+package com.example.aims.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class CartItemRepositoryImpl implements CartItemRepositoryCustom {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CartItemRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void replaceCarts(Map<String, Map<String, Integer>> carts) {
+        if (carts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM CartItems WHERE customerID IN (:ids)",
+                new MapSqlParameterSource("ids", carts.keySet()));
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Integer>> cart : carts.entrySet()) {
+            for (Map.Entry<String, Integer> line : cart.getValue().entrySet()) {
+                rows.add(new Object[]{cart.getKey(), line.getKey(), line.getValue(), line.getKey()});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.getJdbcTemplate().batchUpdate(
+                    "INSERT INTO CartItems (customerID, productID, quantity) SELECT ?, ?, ? " +
+                    "WHERE EXISTS (SELECT 1 FROM Product WHERE productID = ? AND deleted = FALSE)", rows);
+        }
+    }
+}
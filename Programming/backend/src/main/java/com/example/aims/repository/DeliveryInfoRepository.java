@@ -2,8 +2,18 @@ package com.example.aims.repository;
 
 import com.example.aims.model.DeliveryInfo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface DeliveryInfoRepository extends JpaRepository<DeliveryInfo, String> {
+    // Scalar columns only, so the eager order association is not loaded per row:
+    // {orderID, deliveryAddress, phoneNumber, recipientName, mail, province}
+    @Query("SELECT d.orderID, d.deliveryAddress, d.phoneNumber, d.recipientName, d.mail, d.province " +
+           "FROM DeliveryInfo d WHERE d.orderID IN :orderIds")
+    List<Object[]> findRowsByOrderIds(@Param("orderIds") Collection<String> orderIds);
 }
\ No newline at end of file
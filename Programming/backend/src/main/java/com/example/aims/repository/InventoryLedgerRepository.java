@@ -0,0 +1,99 @@
+package com.example.aims.repository;
+
+import com.example.aims.dto.InventoryBalanceDTO;
+import com.example.aims.dto.InventoryMovementDTO;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only InventoryLedger table and the InventorySnapshot balances rolled up from it.
+ * <p>
+ * Each movement carries the id of the transaction that wrote it. A snapshot only rolls in movements
+ * of transactions older than every transaction still running, and records that horizon, so a
+ * movement committed late can never fall behind a snapshot: it is either in the snapshot or in the
+ * tail. Appenders therefore need no lock, unlike a seq watermark which would.
+ */
+@Repository
+public class InventoryLedgerRepository {
+    // Arbitrary key for the advisory lock that keeps snapshot runs from overlapping
+    private static final long SNAPSHOT_LOCK_KEY = 0x1EDCE5L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventoryLedgerRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void appendAll(List<InventoryMovementDTO> movements) {
+        List<Object[]> rows = new ArrayList<>(movements.size());
+        for (InventoryMovementDTO movement : movements) {
+            rows.add(new Object[]{movement.getProductID(), movement.getDelta(), movement.getReason(), movement.getReference()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO InventoryLedger (productID, delta, reason, reference) VALUES (?, ?, ?, ?)",
+                rows, new int[]{Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.VARCHAR});
+    }
+
+    /**
+     * Rolls every finished movement after the last horizon into the per-product balances.
+     * Returns the number of products whose balance moved, or -1 if another run holds the lock.
+     * Must run inside a transaction.
+     */
+    public int snapshot() {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, SNAPSHOT_LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            return -1;
+        }
+        // Every product snapshotted in the last run got its horizon, and products without rows in that
+        // run had none to roll in, so the newest horizon bounds the range that still needs scanning
+        return jdbcTemplate.update(
+                "WITH horizon AS (SELECT pg_snapshot_xmin(pg_current_snapshot()) AS xmin), " +
+                "previous AS (SELECT COALESCE((SELECT horizon FROM InventorySnapshot ORDER BY horizon DESC LIMIT 1), '0'::xid8) AS xmin), " +
+                "tail AS (SELECT l.productID, SUM(l.delta) AS delta FROM InventoryLedger l, horizon h, previous p " +
+                "WHERE l.txid >= p.xmin AND l.txid < h.xmin GROUP BY l.productID) " +
+                "INSERT INTO InventorySnapshot (productID, balance, horizon, takenAt) " +
+                "SELECT t.productID, t.delta, h.xmin, now() FROM tail t, horizon h " +
+                "ON CONFLICT (productID) DO UPDATE SET balance = InventorySnapshot.balance + EXCLUDED.balance, " +
+                "horizon = EXCLUDED.horizon, takenAt = EXCLUDED.takenAt");
+    }
+
+    /**
+     * The product's balance as its snapshot plus the movements after the snapshot's horizon.
+     */
+    public InventoryBalanceDTO findBalance(String productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT s.balance, s.takenAt, COALESCE(SUM(l.delta), 0) AS tailDelta, COUNT(l.seq) AS tailMovements " +
+                "FROM (SELECT CAST(? AS VARCHAR) AS productID) k " +
+                "LEFT JOIN InventorySnapshot s ON s.productID = k.productID " +
+                "LEFT JOIN InventoryLedger l ON l.productID = k.productID AND l.txid >= COALESCE(s.horizon, '0'::xid8) " +
+                "GROUP BY s.balance, s.takenAt",
+                (rs, rowNum) -> {
+                    int snapshotBalance = rs.getInt("balance");
+                    int tailDelta = rs.getInt("tailDelta");
+                    return new InventoryBalanceDTO(productId, snapshotBalance + tailDelta, snapshotBalance,
+                            rs.getTimestamp("takenAt"), tailDelta, rs.getInt("tailMovements"));
+                },
+                productId);
+    }
+
+    /**
+     * The product's most recent movements, newest first.
+     */
+    public List<InventoryMovementDTO> findRecent(String productId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT seq, productID, delta, reason, reference, recordedAt FROM InventoryLedger " +
+                "WHERE productID = ? ORDER BY seq DESC LIMIT ?",
+                (rs, rowNum) -> new InventoryMovementDTO(
+                        rs.getLong("seq"),
+                        rs.getString("productID"),
+                        rs.getInt("delta"),
+                        rs.getString("reason"),
+                        rs.getString("reference"),
+                        rs.getTimestamp("recordedAt")),
+                productId, limit);
+    }
+}
@@ -2,8 +2,16 @@ package com.example.aims.repository;
 
 import com.example.aims.model.Invoice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, String> {
+    // {orderID, productPriceIncludingVAT, deliveryFee}, without loading the eager order association
+    @Query("SELECT i.orderID, i.productPriceIncludingVAT, i.deliveryFee FROM Invoice i WHERE i.orderID IN :orderIds")
+    List<Object[]> findTotalsByOrderIds(@Param("orderIds") Collection<String> orderIds);
 }
\ No newline at end of file
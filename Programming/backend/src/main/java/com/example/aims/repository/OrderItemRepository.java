@@ -3,11 +3,23 @@ package com.example.aims.repository;
 import com.example.aims.model.Order;
 import com.example.aims.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, OrderItem.OrderItemId> {
     List<OrderItem> findByOrder(Order order);
+
+    // Items of many orders with their product columns, one row each: {orderID, productID, title, price, quantity}
+    @Query("SELECT oi.id.orderID, p.productID, p.title, p.price, oi.quantity FROM OrderItem oi JOIN oi.product p " +
+           "WHERE oi.id.orderID IN :orderIds")
+    List<Object[]> findItemRowsByOrderIds(@Param("orderIds") Collection<String> orderIds);
+
+    // Each row is {productID, total quantity sold}
+    @Query("SELECT oi.id.productID, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.id.productID")
+    List<Object[]> sumQuantityByProduct();
 }
\ No newline at end of file
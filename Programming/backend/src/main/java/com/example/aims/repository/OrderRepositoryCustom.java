@@ -0,0 +1,18 @@
+package com.example.aims.repository;
+
+import com.example.aims.dto.OrderDTO;
+
+import java.util.Date;
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * Keyset page query: returns up to {@code limit} orders, newest first by (createdAt, id), that come
+     * strictly after ({@code afterCreatedAt}, {@code afterId}). Pass a null {@code afterId} for the first page.
+     * {@code status}, {@code customerId} and the [{@code from}, {@code to}) range are optional filters.
+     * Orders without a createdAt are not listed. Only the id, customerID, status and createdAt of the DTOs are filled in.
+     */
+    List<OrderDTO> findPage(String status, String customerId, Date from, Date to,
+                            Date afterCreatedAt, String afterId, int limit);
+}
@@ -0,0 +1,69 @@
+package com.example.aims.repository;
+
+import com.example.aims.dto.OrderDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderDTO> findPage(String status, String customerId, Date from, Date to,
+                                   Date afterCreatedAt, String afterId, int limit) {
+        // Scalar columns only, so the eager customer and delivery info are not loaded per row
+        StringBuilder jpql = new StringBuilder(
+                "SELECT o.id, o.customer.id, o.status, o.createdAt FROM Order o WHERE o.createdAt IS NOT NULL");
+        Map<String, Object> params = new HashMap<>();
+
+        // Filters are only added when present, so each combination gets a plan on its own index:
+        // (status, createdAt, id), (customerID, createdAt, id) or (createdAt, id) for all orders
+        if (status != null) {
+            jpql.append(" AND o.status = :status");
+            params.put("status", status);
+        }
+        if (customerId != null) {
+            jpql.append(" AND o.customer.id = :customerId");
+            params.put("customerId", customerId);
+        }
+        if (from != null) {
+            jpql.append(" AND o.createdAt >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" AND o.createdAt < :to");
+            params.put("to", to);
+        }
+        if (afterId != null) {
+            // The leading <= bounds the index range scan; the OR picks the rows after the cursor within it
+            jpql.append(" AND o.createdAt <= :afterCreatedAt")
+                    .append(" AND (o.createdAt < :afterCreatedAt OR o.id < :afterId)");
+            params.put("afterCreatedAt", afterCreatedAt);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY o.createdAt DESC, o.id DESC");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setMaxResults(limit);
+        params.forEach(query::setParameter);
+
+        List<OrderDTO> orders = new ArrayList<>();
+        for (Object[] row : query.getResultList()) {
+            OrderDTO order = new OrderDTO();
+            order.setId((String) row[0]);
+            order.setCustomerID((String) row[1]);
+            order.setStatus((String) row[2]);
+            order.setCreatedAt((Date) row[3]);
+            order.setItems(new ArrayList<>());
+            orders.add(order);
+        }
+        return orders;
+    }
+}
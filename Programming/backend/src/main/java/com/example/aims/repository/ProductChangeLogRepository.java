@@ -0,0 +1,80 @@
+package com.example.aims.repository;
+
+import com.example.aims.dto.ProductChangeDTO;
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.event.ProductChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only ProductChangeLog table. Rows are only inserted, each with the id of the transaction
+ * that wrote it. The feed is read in (txid, seq) order and only up to the oldest transaction still
+ * running: no row can appear below that horizon any more, so a reader never skips a change that
+ * committed late, and appenders need no lock.
+ */
+@Repository
+public class ProductChangeLogRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ProductChangeLogRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public void appendAll(List<ProductChangedEvent> events) {
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (ProductChangedEvent event : events) {
+            rows.add(new Object[]{event.getProductId(), event.getType().name(), toJson(event.getProduct())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO ProductChangeLog (productID, changeType, payload) VALUES (?, ?, ?)", rows);
+    }
+
+    /**
+     * Finished entries after the entry with seq {@code since} (0 for the beginning), in (txid, seq) order.
+     * A long-running transaction holds the feed back until it ends.
+     */
+    public List<ProductChangeDTO> findSince(long since, int limit) {
+        return jdbcTemplate.query(
+                "WITH position AS (SELECT COALESCE((SELECT txid FROM ProductChangeLog WHERE seq = ?), '0'::xid8) AS txid) " +
+                "SELECT l.seq, l.productID, l.changeType, l.changedAt, l.payload FROM ProductChangeLog l, position p " +
+                "WHERE (l.txid, l.seq) > (p.txid, ?) AND l.txid < pg_snapshot_xmin(pg_current_snapshot()) " +
+                "ORDER BY l.txid, l.seq LIMIT ?",
+                (rs, rowNum) -> new ProductChangeDTO(
+                        rs.getLong("seq"),
+                        rs.getString("productID"),
+                        rs.getString("changeType"),
+                        rs.getTimestamp("changedAt"),
+                        fromJson(rs.getString("payload"))),
+                since, since, limit);
+    }
+
+    private String toJson(ProductDTO product) {
+        if (product == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(product);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ProductDTO fromJson(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(payload, ProductDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -7,7 +7,6 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, String> {
+public interface ProductRepository extends JpaRepository<Product, String>, ProductRepositoryCustom {
     List<Product> findByCategory(String category);
-    List<Product> findByTitleContainingIgnoreCase(String title);
-}
\ No newline at end of file
+}
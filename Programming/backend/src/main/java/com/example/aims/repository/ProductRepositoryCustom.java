@@ -0,0 +1,74 @@
+package com.example.aims.repository;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.ProductPatchDTO;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Keyset page query: returns up to {@code limit} products ordered by (sort field, productID)
+     * that come strictly after ({@code afterValue}, {@code afterId}).
+     * Pass a null {@code afterId} for the first page; {@code category} and {@code keyword} are optional filters.
+     * Products with a null sort field are not listed.
+     */
+    List<ProductDTO> findPageWithDetails(String category, String keyword, ProductSortKey sortKey,
+                                         Object afterValue, String afterId, int limit);
+
+    /**
+     * Products with their Book/CD/DVD details in one statement; {@code category} and {@code keyword} are optional filters.
+     */
+    List<ProductDTO> findAllWithDetails(String category, String keyword);
+
+    /**
+     * Products with the given ids and their Book/CD/DVD details in one statement, in no particular order.
+     */
+    List<ProductDTO> findAllWithDetailsById(Collection<String> ids);
+
+    /**
+     * Streams every product together with its Book/CD/DVD details through a forward-only cursor,
+     * reading {@code fetchSize} rows per round trip. Must run inside a transaction so that
+     * PostgreSQL keeps the cursor open instead of materializing the whole result.
+     */
+    void streamWithDetails(int fetchSize, Consumer<ProductDTO> action);
+
+    /**
+     * Ids among {@code ids} that already exist, found with one IN query. Soft-deleted products count,
+     * since their ids stay taken until the tombstone is purged.
+     */
+    Set<String> findExistingIds(Collection<String> ids);
+
+    /**
+     * Inserts the products, their Book/CD/DVD rows and their ShopItems rows for {@code managerID}
+     * as JDBC batches, one batch per table. Categories must already be validated.
+     */
+    void insertAllWithDetails(List<ProductDTO> products, String managerID);
+
+    /**
+     * Applies the price/quantity/value patches with set-based UPDATEs joined to a VALUES list,
+     * leaving null fields unchanged. Ids must be unique. Returns the ids that were updated, each with
+     * the change the patch made to its quantity.
+     */
+    Map<String, Integer> patchAll(List<ProductPatchDTO> patches);
+
+    /**
+     * Takes the quantities out of stock with one conditional UPDATE per product, sent as a single
+     * JDBC batch. A product is only decremented if it is live and has enough stock, so concurrent
+     * checkouts cannot oversell. Returns the ids that were not decremented; the caller must roll
+     * back when there are any.
+     */
+    List<String> decrementStock(Map<String, Integer> quantities);
+
+    /**
+     * Hard-deletes up to {@code limit} products soft-deleted before {@code deletedBefore}, with their
+     * subtype, ShopItems and CartItems rows. Products referenced by an order are never purged.
+     * Returns the number of products purged.
+     */
+    int purgeTombstones(Date deletedBefore, int limit);
+}
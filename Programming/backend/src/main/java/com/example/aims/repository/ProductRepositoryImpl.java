@@ -0,0 +1,262 @@
+package com.example.aims.repository;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.ProductPatchDTO;
+import com.example.aims.mapper.ProductRowMapper;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Listing queries select the listing columns with plain JDBC and map them straight to ProductDTOs,
+ * so no entities are hydrated, no persistence context is involved and subtypes come in the same statement.
+ * Reads leave out soft-deleted products.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    private static final ProductRowMapper ROW_MAPPER = new ProductRowMapper();
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO Product (productID, category, title, value, price, quantity, description, barcode, " +
+            "warehouseEntryDate, dimensions, weight, imageURL) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] PRODUCT_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE,
+            Types.DOUBLE, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.DATE, Types.VARCHAR, Types.DOUBLE,
+            Types.VARCHAR};
+    private static final String INSERT_BOOK =
+            "INSERT INTO Book (productID, coverType, authors, publisher, numberOfPages, language, genre, pubDate) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] BOOK_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.DATE};
+    private static final String INSERT_CD =
+            "INSERT INTO CD (productID, tracklist, artist, releaseDate, recordLabel, musicType) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int[] CD_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DATE,
+            Types.VARCHAR, Types.VARCHAR};
+    private static final String INSERT_DVD =
+            "INSERT INTO DVD (productID, discType, runtime, studio, director, subtitle, releaseDate, language, genre) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] DVD_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.DATE, Types.VARCHAR, Types.VARCHAR};
+    private static final String INSERT_SHOP_ITEM = "INSERT INTO ShopItems (productID, managerID) VALUES (?, ?)";
+    private static final int[] SHOP_ITEM_TYPES = {Types.VARCHAR, Types.VARCHAR};
+    // Rows referencing a product, deleted child tables first and Product last
+    private static final List<String> PURGED_TABLES = List.of("CartItems", "StockReservations", "ProductStockShards", "ShopItems", "Book", "CD", "DVD", "Product");
+    // Four bind parameters per patch, kept well below PostgreSQL's 65535 parameter limit
+    private static final int PATCH_ROWS_PER_STATEMENT = 5000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ProductRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<ProductDTO> findPageWithDetails(String category, String keyword, ProductSortKey sortKey,
+                                                Object afterValue, String afterId, int limit) {
+        String field = "p." + sortKey.getField();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        // The deleted = FALSE predicate lets PostgreSQL use the partial keyset indexes
+        StringBuilder sql = new StringBuilder(ProductRowMapper.SELECT_LIVE_WITH_DETAILS)
+                .append(" AND ").append(field).append(" IS NOT NULL");
+        appendFilters(sql, params, category, keyword);
+        if (afterId != null) {
+            sql.append(" AND (").append(field).append(" > :afterValue")
+                    .append(" OR (").append(field).append(" = :afterValue AND p.productID > :afterId))");
+            params.addValue("afterValue", afterValue);
+            params.addValue("afterId", afterId);
+        }
+        sql.append(" ORDER BY ").append(field).append(", p.productID LIMIT :limit");
+        params.addValue("limit", limit);
+
+        return jdbcTemplate.query(sql.toString(), params, ROW_MAPPER);
+    }
+
+    @Override
+    public List<ProductDTO> findAllWithDetails(String category, String keyword) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(ProductRowMapper.SELECT_LIVE_WITH_DETAILS);
+        appendFilters(sql, params, category, keyword);
+        return jdbcTemplate.query(sql.toString(), params, ROW_MAPPER);
+    }
+
+    @Override
+    public List<ProductDTO> findAllWithDetailsById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(ProductRowMapper.SELECT_LIVE_WITH_DETAILS + " AND p.productID IN (:ids)",
+                new MapSqlParameterSource("ids", ids), ROW_MAPPER);
+    }
+
+    @Override
+    public void streamWithDetails(int fetchSize, Consumer<ProductDTO> action) {
+        jdbcTemplate.getJdbcTemplate().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ProductRowMapper.SELECT_LIVE_WITH_DETAILS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(ROW_MAPPER.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    public Set<String> findExistingIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT productID FROM Product WHERE productID IN (:ids)",
+                new MapSqlParameterSource("ids", ids), String.class));
+    }
+
+    @Override
+    public void insertAllWithDetails(List<ProductDTO> products, String managerID) {
+        List<Object[]> productRows = new ArrayList<>(products.size());
+        List<Object[]> bookRows = new ArrayList<>();
+        List<Object[]> cdRows = new ArrayList<>();
+        List<Object[]> dvdRows = new ArrayList<>();
+        List<Object[]> shopItemRows = new ArrayList<>(products.size());
+        for (ProductDTO p : products) {
+            productRows.add(new Object[]{p.getProductID(), p.getCategory(), p.getTitle(), p.getValue(), p.getPrice(),
+                    p.getQuantity(), p.getDescription(), p.getBarcode(), sqlDate(p.getWarehouseEntryDate()),
+                    p.getDimensions(), p.getWeight(), p.getImageURL()});
+            switch (p.getCategory().toLowerCase()) {
+                case "book":
+                    bookRows.add(new Object[]{p.getProductID(), p.getCoverType(), p.getAuthors(), p.getPublisher(),
+                            p.getNumberOfPages(), p.getLanguage(), p.getGenre(), sqlDate(p.getPubDate())});
+                    break;
+                case "cd":
+                    cdRows.add(new Object[]{p.getProductID(), p.getTracklist(), p.getArtist(),
+                            sqlDate(p.getReleaseDate()), p.getRecordLabel(), p.getMusicType()});
+                    break;
+                case "dvd":
+                    dvdRows.add(new Object[]{p.getProductID(), p.getDiscType(), p.getRuntime(), p.getStudio(),
+                            p.getDirector(), p.getSubtitle(), sqlDate(p.getReleaseDate()), p.getLanguage(),
+                            p.getGenre()});
+                    break;
+            }
+            shopItemRows.add(new Object[]{p.getProductID(), managerID});
+        }
+
+        // Parent rows first so the subtype and ShopItems foreign keys resolve
+        batchInsert(INSERT_PRODUCT, productRows, PRODUCT_TYPES);
+        batchInsert(INSERT_BOOK, bookRows, BOOK_TYPES);
+        batchInsert(INSERT_CD, cdRows, CD_TYPES);
+        batchInsert(INSERT_DVD, dvdRows, DVD_TYPES);
+        batchInsert(INSERT_SHOP_ITEM, shopItemRows, SHOP_ITEM_TYPES);
+    }
+
+    @Override
+    public Map<String, Integer> patchAll(List<ProductPatchDTO> patches) {
+        Map<String, Integer> updated = new LinkedHashMap<>();
+        for (int from = 0; from < patches.size(); from += PATCH_ROWS_PER_STATEMENT) {
+            List<ProductPatchDTO> rows = patches.subList(from, Math.min(from + PATCH_ROWS_PER_STATEMENT, patches.size()));
+            StringBuilder sql = new StringBuilder("WITH v(productID, price, quantity, value) AS (VALUES ");
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            for (int i = 0; i < rows.size(); i++) {
+                ProductPatchDTO patch = rows.get(i);
+                // Casts type the VALUES columns, which would otherwise be unknown when the first row is null
+                sql.append(i == 0 ? "" : ", ")
+                        .append("(:id").append(i)
+                        .append(", CAST(:price").append(i).append(" AS DOUBLE PRECISION)")
+                        .append(", CAST(:quantity").append(i).append(" AS INTEGER)")
+                        .append(", CAST(:value").append(i).append(" AS DOUBLE PRECISION))");
+                params.addValue("id" + i, patch.getProductID(), Types.VARCHAR);
+                params.addValue("price" + i, patch.getPrice(), Types.DOUBLE);
+                params.addValue("quantity" + i, patch.getQuantity(), Types.INTEGER);
+                params.addValue("value" + i, patch.getValue(), Types.DOUBLE);
+            }
+            // The old quantities are read with the rows locked, so the returned change is exact
+            sql.append("), old AS (SELECT o.productID, o.quantity FROM Product o JOIN v ON v.productID = o.productID ")
+                    .append("WHERE o.deleted = FALSE FOR UPDATE OF o) ")
+                    .append("UPDATE Product p SET price = COALESCE(v.price, p.price), ")
+                    .append("quantity = COALESCE(v.quantity, p.quantity), value = COALESCE(v.value, p.value), ")
+                    .append("version = p.version + 1 FROM v JOIN old ON old.productID = v.productID ")
+                    .append("WHERE p.productID = v.productID ")
+                    .append("RETURNING p.productID, COALESCE(p.quantity, 0) - COALESCE(old.quantity, 0) AS delta");
+            jdbcTemplate.query(sql.toString(), params,
+                    (RowCallbackHandler) rs -> updated.put(rs.getString("productID"), rs.getInt("delta")));
+        }
+        return updated;
+    }
+
+    @Override
+    public List<String> decrementStock(Map<String, Integer> quantities) {
+        // Sorted, so concurrent checkouts of overlapping carts lock their rows in the same order
+        List<String> ids = new ArrayList<>(new TreeSet<>(quantities.keySet()));
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            int quantity = quantities.get(id);
+            rows.add(new Object[]{quantity, id, quantity});
+        }
+        int[] counts = jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "UPDATE Product SET quantity = quantity - ?, version = version + 1 " +
+                "WHERE productID = ? AND quantity >= ? AND deleted = FALSE",
+                rows, new int[]{Types.INTEGER, Types.VARCHAR, Types.INTEGER});
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                failed.add(ids.get(i));
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public int purgeTombstones(Date deletedBefore, int limit) {
+        // Tombstones still referenced by an order are kept for the order history.
+        // SKIP LOCKED lets two compactor runs share the work instead of waiting on each other.
+        List<String> ids = jdbcTemplate.queryForList(
+                "SELECT p.productID FROM Product p WHERE p.deleted = TRUE AND p.deletedAt < :cutoff " +
+                "AND NOT EXISTS (SELECT 1 FROM OrderItems oi WHERE oi.productID = p.productID) " +
+                "ORDER BY p.deletedAt LIMIT :limit FOR UPDATE SKIP LOCKED",
+                new MapSqlParameterSource("cutoff", deletedBefore).addValue("limit", limit), String.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        for (String table : PURGED_TABLES) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE productID IN (:ids)", params);
+        }
+        return ids.size();
+    }
+
+    private void batchInsert(String sql, List<Object[]> rows, int[] types) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.getJdbcTemplate().batchUpdate(sql, rows, types);
+        }
+    }
+
+    private static java.sql.Date sqlDate(Date date) {
+        return date == null ? null : new java.sql.Date(date.getTime());
+    }
+
+    private void appendFilters(StringBuilder sql, MapSqlParameterSource params, String category, String keyword) {
+        if (category != null) {
+            sql.append(" AND p.category = :category");
+            params.addValue("category", category);
+        }
+        if (keyword != null) {
+            // The keyword is matched literally, so its own % and _ are escaped
+            sql.append(" AND LOWER(p.title) LIKE :pattern ESCAPE '\\'");
+            params.addValue("pattern", "%" + escapeLike(keyword.toLowerCase()) + "%");
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
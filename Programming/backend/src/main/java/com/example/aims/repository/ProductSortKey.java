@@ -0,0 +1,50 @@
+package com.example.aims.repository;
+
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.dto.ProductDTO;
+
+/**
+ * Sort orders supported by keyset pagination on products.
+ * Every order is made unique by using productID as the tie breaker.
+ */
+public enum ProductSortKey {
+    TITLE("title"),
+    PRICE("price");
+
+    private final String field;
+
+    ProductSortKey(String field) {
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Object valueOf(ProductDTO product) {
+        return this == PRICE ? product.getPrice() : product.getTitle();
+    }
+
+    public Object parseValue(String value) {
+        if (this == PRICE) {
+            try {
+                return Double.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+        return value;
+    }
+
+    public static ProductSortKey fromParam(String param) {
+        if (param == null || param.isEmpty()) {
+            return TITLE;
+        }
+        for (ProductSortKey key : values()) {
+            if (key.field.equalsIgnoreCase(param)) {
+                return key;
+            }
+        }
+        throw new BadRequestException("Invalid sort: " + param);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.aims.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ProductStockShards table: the stock of a hot product split across counter rows, so concurrent
+ * checkouts lock different rows instead of queueing on the Product row.
+ */
+@Repository
+public class ProductStockShardRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductStockShardRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * productID -> number of shards, for every product in hot mode.
+     */
+    public Map<String, Integer> findShardCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT productID, COUNT(*) AS shards FROM ProductStockShards GROUP BY productID",
+                rs -> {
+                    counts.put(rs.getString("productID"), rs.getInt("shards"));
+                });
+        return counts;
+    }
+
+    /**
+     * Locks the live product's row and returns its quantity, or null if there is no such product.
+     */
+    public Integer lockProductQuantity(String productId) {
+        List<Integer> quantities = jdbcTemplate.queryForList(
+                "SELECT quantity FROM Product WHERE productID = ? AND deleted = FALSE FOR UPDATE",
+                Integer.class, productId);
+        return quantities.isEmpty() ? null : quantities.get(0);
+    }
+
+    /**
+     * Replaces the product's shards with {@code shards} rows that share {@code quantity} as evenly as possible.
+     */
+    public void split(String productId, int quantity, int shards) {
+        jdbcTemplate.update("DELETE FROM ProductStockShards WHERE productID = ?", productId);
+        List<Object[]> rows = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            rows.add(new Object[]{productId, shard, quantity / shards + (shard < quantity % shards ? 1 : 0)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO ProductStockShards (productID, shard, quantity) VALUES (?, ?, ?)",
+                rows, new int[]{Types.VARCHAR, Types.INTEGER, Types.INTEGER});
+    }
+
+    /**
+     * Deletes the product's shards and returns the stock they held.
+     */
+    public int merge(String productId) {
+        List<Integer> quantities = jdbcTemplate.queryForList(
+                "DELETE FROM ProductStockShards WHERE productID = ? RETURNING quantity", Integer.class, productId);
+        int total = 0;
+        for (Integer quantity : quantities) {
+            total += quantity;
+        }
+        return total;
+    }
+
+    /**
+     * Takes {@code quantity} from one shard if that shard alone has enough. Only that row is locked.
+     */
+    public boolean decrementShard(String productId, int shard, int quantity) {
+        return jdbcTemplate.update(
+                "UPDATE ProductStockShards SET quantity = quantity - ? WHERE productID = ? AND shard = ? AND quantity >= ?",
+                quantity, productId, shard, quantity) > 0;
+    }
+
+    /**
+     * Slow path for a quantity no single shard covers: locks all of the product's shards and takes the
+     * quantity from them in turn. Returns false, changing nothing, if together they hold too little.
+     */
+    public boolean decrementAcrossShards(String productId, int quantity) {
+        List<int[]> shards = jdbcTemplate.query(
+                "SELECT shard, quantity FROM ProductStockShards WHERE productID = ? ORDER BY shard FOR UPDATE",
+                (rs, rowNum) -> new int[]{rs.getInt("shard"), rs.getInt("quantity")}, productId);
+        int total = 0;
+        for (int[] shard : shards) {
+            total += shard[1];
+        }
+        if (shards.isEmpty() || total < quantity) {
+            return false;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        int remaining = quantity;
+        for (int[] shard : shards) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = Math.min(remaining, shard[1]);
+            if (taken > 0) {
+                rows.add(new Object[]{taken, productId, shard[0]});
+                remaining -= taken;
+            }
+        }
+        jdbcTemplate.batchUpdate("UPDATE ProductStockShards SET quantity = quantity - ? WHERE productID = ? AND shard = ?",
+                rows, new int[]{Types.INTEGER, Types.VARCHAR, Types.INTEGER});
+        return true;
+    }
+
+    public void setProductQuantity(String productId, int quantity) {
+        jdbcTemplate.update("UPDATE Product SET quantity = ?, version = version + 1 WHERE productID = ?",
+                quantity, productId);
+    }
+
+    /**
+     * Sets Product.quantity of every live hot product to the sum of its shards, where they differ.
+     * Returns the ids that changed.
+     */
+    public List<String> reconcile() {
+        return jdbcTemplate.queryForList(
+                "UPDATE Product p SET quantity = s.total, version = p.version + 1 " +
+                "FROM (SELECT productID, SUM(quantity) AS total FROM ProductStockShards GROUP BY productID) s " +
+                "WHERE p.productID = s.productID AND p.deleted = FALSE AND p.quantity <> s.total " +
+                "RETURNING p.productID", String.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.aims.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * StockReservations table, the durable copy of the in-memory reservation table.
+ * Rows are written in batches and expired rows are simply ignored until they are deleted.
+ */
+@Repository
+public class StockReservationRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Reservation {
+        private final String customerID;
+        private final String productID;
+        private final int quantity;
+        private final Date expiresAt;
+    }
+
+    public StockReservationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Reservations that have not expired at {@code now}, for products that are still live.
+     */
+    public List<Reservation> findActive(Date now) {
+        return jdbcTemplate.query(
+                "SELECT r.customerID, r.productID, r.quantity, r.expiresAt FROM StockReservations r " +
+                "JOIN Product p ON p.productID = r.productID WHERE r.expiresAt > ? AND p.deleted = FALSE",
+                (rs, rowNum) -> new Reservation(
+                        rs.getString("customerID"),
+                        rs.getString("productID"),
+                        rs.getInt("quantity"),
+                        rs.getTimestamp("expiresAt")),
+                new Timestamp(now.getTime()));
+    }
+
+    public void upsertAll(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            rows.add(new Object[]{reservation.getCustomerID(), reservation.getProductID(),
+                    reservation.getQuantity(), new Timestamp(reservation.getExpiresAt().getTime())});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO StockReservations (customerID, productID, quantity, expiresAt) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT (customerID, productID) DO UPDATE SET quantity = EXCLUDED.quantity, expiresAt = EXCLUDED.expiresAt",
+                rows);
+    }
+
+    /**
+     * Deletes the given (customerID, productID) pairs.
+     */
+    public void deleteAll(List<String[]> keys) {
+        if (!keys.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM StockReservations WHERE customerID = ? AND productID = ?",
+                    new ArrayList<Object[]>(keys));
+        }
+    }
+}
@@ -1,64 +1,78 @@
 package com.example.aims.service;
 
 import com.example.aims.dto.CartItemDTO;
+import com.example.aims.dto.CartOperationDTO;
+import com.example.aims.dto.ProductDTO;
 import com.example.aims.exception.BadRequestException;
 import com.example.aims.exception.ResourceNotFoundException;
-import com.example.aims.model.CartItem;
-import com.example.aims.model.Product;
-import com.example.aims.model.Users;
 import com.example.aims.repository.CartItemRepository;
 import com.example.aims.repository.ProductRepository;
 import com.example.aims.repository.UsersRepository;
+import com.example.aims.service.cart.CartStore;
+import com.example.aims.service.catalog.ProductCatalog;
+import com.example.aims.service.inventory.StockReservationService;
 
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
+    private static final int MAX_OPERATIONS = 500;
 
     // COHESION: Procedural cohesion — this class contains a sequence of operations related to cart functionality,
     // but each method handles different, mostly unrelated tasks (e.g., getCartItems vs addToCart).
     // SRP VIOLATION: This class is responsible for multiple concerns: data validation, DTO mapping, and cart operations.
     // RECOMMENDATION: Split into multiple components to follow SRP and improve cohesion.
 
-    private final CartItemRepository cartItemRepository;
-    private final UsersRepository userRepository;
+    // Carts live in CartStore and reach CartItems write-behind; products are read from the catalog,
+    // so the common cart operations do not touch the database at all.
+    private final CartStore cartStore;
+    private final ProductCatalog productCatalog;
     private final ProductRepository productRepository;
+    private final CartItemRepository cartItemRepository;
+    private final UsersRepository usersRepository;
+    private final StockReservationService stockReservations;
 
     public List<CartItemDTO> getCartItems(String customerId) {
         // This method retrieves all items in a user's cart and maps them to DTOs.
         // RESPONSIBILITIES: (1) Fetching cart data, (2) Mapping domain objects to DTOs.
         // SRP VIOLATION: Mapping should be delegated to a CartItemMapper or DTOFactory class.
 
-        Users customer = userRepository.findById(customerId)
-                .orElseThrow(() -> new ResourceNotFoundException("Users", "id", customerId));
+        if (!cartStore.isResident(customerId)) {
+            // Nothing pending for this cart, so CartItems is current: one joined query, no need to load it
+            List<CartItemDTO> cartItemDTOs = cartItemRepository.findCartItemDTOsByCustomerId(customerId);
+            if (cartItemDTOs.isEmpty() && !usersRepository.existsById(customerId)) {
+                throw new ResourceNotFoundException("Users", "id", customerId);
+            }
+            return cartItemDTOs;
+        }
 
-        List<CartItem> cartItems = cartItemRepository.findByCustomer(customer);
+        Map<String, Integer> items = cartStore.getItems(customerId);
+        Map<String, ProductDTO> products = findProducts(items.keySet());
         List<CartItemDTO> cartItemDTOs = new ArrayList<>();
 
-        for (CartItem cartItem : cartItems) {
-            // Mapping logic — candidate for extraction
-            CartItemDTO dto = new CartItemDTO();
-            dto.setProductID(cartItem.getProduct().getProductID());
-            dto.setProductTitle(cartItem.getProduct().getTitle());
-            dto.setProductPrice(cartItem.getProduct().getPrice());
-            dto.setQuantity(cartItem.getQuantity());
-            dto.setImageURL(cartItem.getProduct().getImageURL());
-
-            cartItemDTOs.add(dto);
+        for (Map.Entry<String, Integer> item : items.entrySet()) {
+            ProductDTO product = products.get(item.getKey());
+            if (product == null) {
+                // Deleted since it was added; the store drops it on its own
+                continue;
+            }
+            cartItemDTOs.add(toDTO(product, item.getValue()));
         }
 
         return cartItemDTOs;
     }
 
-    @Transactional
     public CartItemDTO addToCart(String customerId, String productId, Integer quantity) {
         // This method handles the logic of adding an item to the cart, validating user/product,
         // checking stock, and returning a DTO.
@@ -69,52 +83,25 @@ public class CartService {
             throw new BadRequestException("Quantity must be greater than zero");
         }
 
-        Users customer = userRepository.findById(customerId)
-                .orElseThrow(() -> new ResourceNotFoundException("Users", "id", customerId));
-
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
+        ProductDTO product = findProduct(productId);
 
         // Stock validation logic — should be separated
-        if (product.getQuantity() < quantity) {
-            throw new BadRequestException("Not enough stock available. Available: " + product.getQuantity());
-        }
-
-        CartItem.CartItemId cartItemId = new CartItem.CartItemId(customerId, productId);
-        Optional<CartItem> existingCartItem = cartItemRepository.findById(cartItemId);
-
-        CartItem cartItem;
-        if (existingCartItem.isPresent()) {
-            cartItem = existingCartItem.get();
-            int newQuantity = cartItem.getQuantity() + quantity;
-
-            if (newQuantity > product.getQuantity()) {
-                throw new BadRequestException("Not enough stock available. Available: " + product.getQuantity());
-            }
-
-            cartItem.setQuantity(newQuantity);
-        } else {
-            cartItem = new CartItem();
-            cartItem.setId(cartItemId);
-            cartItem.setCustomer(customer);
-            cartItem.setProduct(product);
-            cartItem.setQuantity(quantity);
+        // Units other carts hold are not for sale; the reservation below re-checks under the product's lock
+        int available = stockReservations.availableToSell(productId, product.getQuantity());
+        if (available < quantity) {
+            throw new BadRequestException("Not enough stock available. Available: " + Math.max(available, 0));
         }
 
-        cartItemRepository.save(cartItem);
+        // The line's new total is held against other customers' reservations before it enters the cart
+        Map<String, Integer> items = cartStore.modify(customerId, cart -> {
+            int newQuantity = cart.getOrDefault(productId, 0) + quantity;
+            stockReservations.reserve(customerId, productId, newQuantity, product.getQuantity());
+            cart.put(productId, newQuantity);
+        });
 
-        // Mapping logic — can be delegated
-        CartItemDTO dto = new CartItemDTO();
-        dto.setProductID(product.getProductID());
-        dto.setProductTitle(product.getTitle());
-        dto.setProductPrice(product.getPrice());
-        dto.setQuantity(cartItem.getQuantity());
-        dto.setImageURL(product.getImageURL());
-
-        return dto;
+        return toDTO(product, items.get(productId));
     }
 
-    @Transactional
     public CartItemDTO updateCartItem(String customerId, String productId, Integer quantity) {
         // Similar to addToCart — violates SRP by doing multiple tasks.
         // The method performs validation, retrieves data, updates quantity, and maps DTO.
@@ -123,53 +110,166 @@ public class CartService {
             throw new BadRequestException("Quantity must be greater than zero");
         }
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
+        ProductDTO product = findProduct(productId);
 
-        if (product.getQuantity() < quantity) {
-            throw new BadRequestException("Not enough stock available. Available: " + product.getQuantity());
+        // The new quantity replaces the customer's own hold, so only other carts' holds count
+        int available = stockReservations.availableToSell(productId, product.getQuantity(), customerId);
+        if (available < quantity) {
+            throw new BadRequestException("Not enough stock available. Available: " + Math.max(available, 0));
         }
 
-        CartItem.CartItemId cartItemId = new CartItem.CartItemId(customerId, productId);
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
-
-        cartItem.setQuantity(quantity);
-        cartItemRepository.save(cartItem);
-
-        // DTO conversion
-        CartItemDTO dto = new CartItemDTO();
-        dto.setProductID(product.getProductID());
-        dto.setProductTitle(product.getTitle());
-        dto.setProductPrice(product.getPrice());
-        dto.setQuantity(cartItem.getQuantity());
-        dto.setImageURL(product.getImageURL());
+        cartStore.modify(customerId, cart -> {
+            if (!cart.containsKey(productId)) {
+                throw new ResourceNotFoundException("Cart item not found");
+            }
+            stockReservations.reserve(customerId, productId, quantity, product.getQuantity());
+            cart.put(productId, quantity);
+        });
 
-        return dto;
+        return toDTO(product, quantity);
     }
 
-    @Transactional
     public void removeFromCart(String customerId, String productId) {
         // Straightforward delete operation — fits CartService responsibility.
         // Minimal SRP concern here.
 
-        CartItem.CartItemId cartItemId = new CartItem.CartItemId(customerId, productId);
+        cartStore.remove(customerId, productId);
+        stockReservations.release(customerId, productId);
+    }
+
+    public void clearCart(String customerId) {
+        // Method deletes all cart items for a customer — acceptable responsibility.
+
+        cartStore.clear(customerId);
+        stockReservations.releaseAll(customerId);
+    }
 
-        if (!cartItemRepository.existsById(cartItemId)) {
-            throw new ResourceNotFoundException("Cart item not found");
+    /**
+     * Applies a list of add/set/remove operations as one change: all products are looked up at once,
+     * every line is checked against stock, and the cart only changes if all operations are valid.
+     * Returns the whole cart afterwards.
+     */
+    public List<CartItemDTO> applyOperations(String customerId, List<CartOperationDTO> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new BadRequestException("At least one cart operation is required");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new BadRequestException("At most " + MAX_OPERATIONS + " cart operations can be applied at once");
         }
 
-        cartItemRepository.deleteById(cartItemId);
+        Set<String> productIds = new LinkedHashSet<>();
+        for (CartOperationDTO operation : operations) {
+            if (operation.getProductID() == null || operation.getProductID().isEmpty()) {
+                throw new BadRequestException("Product ID is required for every cart operation");
+            }
+            String op = operation.getOp() == null ? "" : operation.getOp().toLowerCase();
+            if (!op.equals("remove")) {
+                if (!op.equals("add") && !op.equals("set")) {
+                    throw new BadRequestException("Invalid cart operation: " + operation.getOp());
+                }
+                if (operation.getQuantity() == null || operation.getQuantity() <= 0) {
+                    throw new BadRequestException("Quantity must be greater than zero");
+                }
+                productIds.add(operation.getProductID());
+            }
+        }
+        Map<String, ProductDTO> products = findProducts(productIds);
+        for (String productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new ResourceNotFoundException("Product", "id", productId);
+            }
+        }
+
+        Map<String, Integer> items = cartStore.modify(customerId, cart -> {
+            Set<String> before = new HashSet<>(cart.keySet());
+            for (CartOperationDTO operation : operations) {
+                String productId = operation.getProductID();
+                switch (operation.getOp().toLowerCase()) {
+                    case "add" -> cart.merge(productId, operation.getQuantity(), Integer::sum);
+                    case "set" -> cart.put(productId, operation.getQuantity());
+                    default -> {
+                        if (cart.remove(productId) == null) {
+                            throw new ResourceNotFoundException("Cart item not found");
+                        }
+                    }
+                }
+            }
+            // Stock is checked on the final quantities, so "set 5, add 1" needs 6 in stock
+            for (String productId : productIds) {
+                Integer quantity = cart.get(productId);
+                int available = Math.max(stockReservations.availableToSell(
+                        productId, products.get(productId).getQuantity(), customerId), 0);
+                if (quantity != null && quantity > available) {
+                    throw new BadRequestException("Not enough stock available for " + productId + ". Available: " + available);
+                }
+            }
+            // Hold the final quantities, then give back the holds of removed lines
+            Map<String, Integer> held = new HashMap<>();
+            Map<String, Integer> stock = new HashMap<>();
+            for (String productId : productIds) {
+                if (cart.containsKey(productId)) {
+                    held.put(productId, cart.get(productId));
+                    stock.put(productId, products.get(productId).getQuantity());
+                }
+            }
+            stockReservations.reserveAll(customerId, held, stock);
+            before.removeAll(cart.keySet());
+            for (String productId : before) {
+                stockReservations.release(customerId, productId);
+            }
+        });
+
+        List<String> missing = new ArrayList<>();
+        for (String productId : items.keySet()) {
+            if (!products.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            products.putAll(findProducts(missing));
+        }
+        List<CartItemDTO> cartItemDTOs = new ArrayList<>();
+        for (Map.Entry<String, Integer> item : items.entrySet()) {
+            ProductDTO product = products.get(item.getKey());
+            if (product != null) {
+                cartItemDTOs.add(toDTO(product, item.getValue()));
+            }
+        }
+        return cartItemDTOs;
     }
 
-    @Transactional
-    public void clearCart(String customerId) {
-        // Method deletes all cart items for a customer — acceptable responsibility.
+    private ProductDTO findProduct(String productId) {
+        ProductDTO product = findProducts(List.of(productId)).get(productId);
+        if (product == null) {
+            throw new ResourceNotFoundException("Product", "id", productId);
+        }
+        return product;
+    }
 
-        Users customer = userRepository.findById(customerId)
-                .orElseThrow(() -> new ResourceNotFoundException("Users", "id", customerId));
+    // Live products by id, from the catalog or with one query while it is loading
+    private Map<String, ProductDTO> findProducts(Iterable<String> ids) {
+        Map<String, ProductDTO> products = new HashMap<>();
+        if (productCatalog.isLoaded()) {
+            for (String id : ids) {
+                productCatalog.findById(id).ifPresent(product -> products.put(id, product));
+            }
+            return products;
+        }
+        List<String> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        for (ProductDTO product : productRepository.findAllWithDetailsById(idList)) {
+            products.put(product.getProductID(), product);
+        }
+        return products;
+    }
 
-        cartItemRepository.deleteByCustomer(customer);
+    private CartItemDTO toDTO(ProductDTO product, int quantity) {
+        CartItemDTO dto = new CartItemDTO();
+        dto.setProductID(product.getProductID());
+        dto.setProductTitle(product.getTitle());
+        dto.setProductPrice(product.getPrice());
+        dto.setQuantity(quantity);
+        dto.setImageURL(product.getImageURL());
+        return dto;
     }
 }
-
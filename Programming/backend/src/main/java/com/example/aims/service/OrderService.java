@@ -2,17 +2,28 @@ package com.example.aims.service;
 
 import com.example.aims.dto.DeliveryInfoDTO;
 import com.example.aims.dto.OrderDTO;
-import com.example.aims.dto.OrderItemDTO;
+import com.example.aims.dto.OrderPageDTO;
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.event.OrderPlacedEvent;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.exception.BadRequestException;
 import com.example.aims.model.*;
 import com.example.aims.repository.*;
+import com.example.aims.service.cart.CartStore;
+import com.example.aims.service.inventory.HotStockService;
+import com.example.aims.service.inventory.InventoryLedgerService;
+import com.example.aims.service.inventory.StockReservationService;
+import com.example.aims.service.order.OrderAssembler;
+import com.example.aims.util.CursorCodec;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 //***Cohesion: low to medium
 // In the case of the OrderService class:
@@ -68,6 +79,9 @@ import java.util.stream.Collectors;
 @Service
 public class OrderService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final DeliveryInfoRepository deliveryInfoRepository;
@@ -75,12 +89,20 @@ public class OrderService {
     private final InvoiceRepository invoiceRepository;
     private final UsersRepository userRepository;
     private final ProductRepository productRepository;
-    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
+    private final StockReservationService stockReservations;
+    private final HotStockService hotStockService;
+    private final InventoryLedgerService inventoryLedger;
+    private final OrderAssembler orderAssembler;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OrderService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
                        DeliveryInfoRepository deliveryInfoRepository, PaymentTransactionRepository paymentTransactionRepository,
                        InvoiceRepository invoiceRepository, UsersRepository userRepository,
-                       ProductRepository productRepository, CartItemRepository cartItemRepository) {
+                       ProductRepository productRepository, CartStore cartStore,
+                       StockReservationService stockReservations, HotStockService hotStockService,
+                       InventoryLedgerService inventoryLedger, OrderAssembler orderAssembler,
+                       ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.deliveryInfoRepository = deliveryInfoRepository;
@@ -88,7 +110,12 @@ public class OrderService {
         this.invoiceRepository = invoiceRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
-        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.stockReservations = stockReservations;
+        this.hotStockService = hotStockService;
+        this.inventoryLedger = inventoryLedger;
+        this.orderAssembler = orderAssembler;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<OrderDTO> getCustomerOrders(String customerId) {
@@ -96,33 +123,53 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Users not found with id: " + customerId));
         
         List<Order> orders = orderRepository.findByCustomer(customer);
-        List<OrderDTO> orderDTOs = new ArrayList<>();
-        
-        for (Order order : orders) {
-            OrderDTO dto = convertToDTO(order);
-            orderDTOs.add(dto);
-        }
-        
-        return orderDTOs;
+        return orderAssembler.toDTOs(orders);
     }
 
     public OrderDTO getOrderById(String orderId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
         
-        return convertToDTO(order);
+        return orderAssembler.toDTO(order);
     }
 
-    public List<OrderDTO> getOrdersByStatus(String status) {
-        List<Order> orders = orderRepository.findByStatus(status);
-        List<OrderDTO> orderDTOs = new ArrayList<>();
-        
-        for (Order order : orders) {
-            OrderDTO dto = convertToDTO(order);
-            orderDTOs.add(dto);
+    /**
+     * One page of orders for admins, newest first. A null, empty or "ALL" status lists orders of every status.
+     * {@code from} is inclusive and {@code to} exclusive; {@code after} is the cursor of the previous page.
+     */
+    public OrderPageDTO getOrderPage(String status, String customerId, Date from, Date to, String after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
         }
-        
-        return orderDTOs;
+        if (from != null && to != null && !from.before(to)) {
+            throw new BadRequestException("'from' must be before 'to'");
+        }
+        String statusFilter = status == null || status.isEmpty() || status.equalsIgnoreCase("ALL") ? null : status;
+        String customerFilter = customerId == null || customerId.isEmpty() ? null : customerId;
+
+        Date afterCreatedAt = null;
+        String afterId = null;
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = CursorCodec.decode(after);
+            try {
+                afterCreatedAt = new Date(Long.parseLong(cursor[0]));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            afterId = cursor[1];
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<OrderDTO> orders = orderRepository.findPage(statusFilter, customerFilter, from, to,
+                afterCreatedAt, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            OrderDTO last = orders.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(String.valueOf(last.getCreatedAt().getTime()), last.getId());
+        }
+        return new OrderPageDTO(orderAssembler.addDetails(orders), nextCursor);
     }
 
     @Transactional
@@ -130,11 +177,35 @@ public class OrderService {
         Users customer = userRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Users not found with id: " + customerId));
         
-        List<CartItem> cartItems = cartItemRepository.findByCustomer(customer);
+        // The cart store is ahead of CartItems, which it updates write-behind
+        Map<String, Integer> cartItems = cartStore.getItems(customerId);
         
         if (cartItems.isEmpty()) {
             throw new RuntimeException("Cart is empty");
         }
+        Map<String, Product> products = new HashMap<>();
+        Map<String, Integer> stock = new HashMap<>();
+        for (Product product : productRepository.findAllById(cartItems.keySet())) {
+            products.put(product.getProductID(), product);
+            stock.put(product.getProductID(), product.getQuantity());
+        }
+        for (String productId : cartItems.keySet()) {
+            Product product = products.get(productId);
+            if (product == null || product.isDeleted()) {
+                throw new RuntimeException("Product is no longer available: " + productId);
+            }
+        }
+        // Re-confirm the cart's holds against current stock; expired holds are taken again if the
+        // units are still free, so stock cannot be sold twice
+        stockReservations.reserveAll(customerId, cartItems, stock);
+        
+        // Take the stock with one conditional UPDATE per line, sent as one batch, or from a counter shard
+        // for hot products. The stock read above may already be stale; a line another checkout emptied
+        // first fails the whole order here
+        List<String> outOfStock = hotStockService.decrementStock(cartItems);
+        if (!outOfStock.isEmpty()) {
+            throw new RuntimeException("Not enough stock for products: " + String.join(", ", outOfStock));
+        }
         
         // Create order
         String orderId = UUID.randomUUID().toString();
@@ -142,29 +213,33 @@ public class OrderService {
         order.setId(orderId);
         order.setCustomer(customer);
         order.setStatus("PENDING");
+        order.setCreatedAt(new Date());
         
         orderRepository.save(order);
         
         // Create order items
         double totalPrice = 0.0f;
         
-        for (CartItem cartItem : cartItems) {
+        for (Map.Entry<String, Integer> cartItem : cartItems.entrySet()) {
+            Product product = products.get(cartItem.getKey());
             OrderItem orderItem = new OrderItem();
-            OrderItem.OrderItemId orderItemId = new OrderItem.OrderItemId(cartItem.getProduct().getProductID(), orderId);
+            OrderItem.OrderItemId orderItemId = new OrderItem.OrderItemId(product.getProductID(), orderId);
             orderItem.setId(orderItemId);
-            orderItem.setProduct(cartItem.getProduct());
+            orderItem.setProduct(product);
             orderItem.setOrder(order);
-            orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setQuantity(cartItem.getValue());
             
             orderItemRepository.save(orderItem);
+            inventoryLedger.record(product.getProductID(), -cartItem.getValue(), InventoryLedgerService.Reason.SALE, orderId);
             
-            // Update product quantity
-            Product product = cartItem.getProduct();
-            product.setQuantity(product.getQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
-            
-            totalPrice += product.getPrice() * cartItem.getQuantity();
+            totalPrice += product.getPrice() * cartItem.getValue();
+        }
+        
+        // Let in-memory product read models pick up the new stock levels after commit
+        for (ProductDTO soldProduct : productRepository.findAllWithDetailsById(cartItems.keySet())) {
+            eventPublisher.publishEvent(ProductChangedEvent.updated(soldProduct));
         }
+        eventPublisher.publishEvent(new OrderPlacedEvent(orderId, new HashMap<>(cartItems)));
         
         // Create delivery info
         DeliveryInfo deliveryInfo = new DeliveryInfo();
@@ -200,10 +275,12 @@ public class OrderService {
         
         invoiceRepository.save(invoice);
         
-        // Clear the cart
-        cartItemRepository.deleteByCustomer(customer);
+        // Clear the ordered lines from the cart once the order is committed
+        cartStore.removeAfterCommit(customerId, cartItems);
+        // The holds have become sold stock
+        stockReservations.releaseAfterCommit(customerId, cartItems.keySet());
         
-        return convertToDTO(order);
+        return orderAssembler.toDTO(order);
     }
 
     @Transactional
@@ -214,45 +291,6 @@ public class OrderService {
         order.setStatus(status);
         orderRepository.save(order);
         
-        return convertToDTO(order);
-    }
-
-    private OrderDTO convertToDTO(Order order) {
-        OrderDTO dto = new OrderDTO();
-        dto.setId(order.getId());
-        dto.setCustomerID(order.getCustomer().getId());
-        dto.setStatus(order.getStatus());
-        
-        // Get order items
-        List<OrderItem> orderItems = orderItemRepository.findByOrder(order);
-        List<OrderItemDTO> orderItemDTOs = orderItems.stream().map(item -> {
-            OrderItemDTO itemDTO = new OrderItemDTO();
-            itemDTO.setProductID(item.getProduct().getProductID());
-            itemDTO.setProductTitle(item.getProduct().getTitle());
-            itemDTO.setProductPrice(item.getProduct().getPrice());
-            itemDTO.setQuantity(item.getQuantity());
-            return itemDTO;
-        }).collect(Collectors.toList());
-        
-        dto.setItems(orderItemDTOs);
-        
-        // Get delivery info
-        deliveryInfoRepository.findById(order.getId()).ifPresent(deliveryInfo -> {
-            DeliveryInfoDTO deliveryInfoDTO = new DeliveryInfoDTO();
-            deliveryInfoDTO.setDeliveryAddress(deliveryInfo.getDeliveryAddress());
-            deliveryInfoDTO.setPhoneNumber(deliveryInfo.getPhoneNumber());
-            deliveryInfoDTO.setRecipientName(deliveryInfo.getRecipientName());
-            deliveryInfoDTO.setMail(deliveryInfo.getMail());
-            deliveryInfoDTO.setProvince(deliveryInfo.getProvince());
-            
-            dto.setDeliveryInfo(deliveryInfoDTO);
-        });
-        
-        // Get total price from invoice
-        invoiceRepository.findById(order.getId()).ifPresent(invoice -> {
-            dto.setTotalPrice(invoice.getProductPriceIncludingVAT() + invoice.getDeliveryFee());
-        });
-        
-        return dto;
+        return orderAssembler.toDTO(order);
     }
 }
\ No newline at end of file
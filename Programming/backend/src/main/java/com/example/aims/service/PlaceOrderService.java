@@ -16,6 +16,8 @@ import com.example.aims.repository.OrderRepository;
 import com.example.aims.repository.ProductOrderRepository;
 import com.example.aims.repository.ProductRepository;
 
+import java.util.Date;
+
 //***Cohesion: low to medium
 // In the case of the PlaceOrderService class:
 //
@@ -129,6 +131,7 @@ public class PlaceOrderService {
         Order order = new Order();
         order.setDeliveryInfo(deliveryInfo);
         order.setTotalAmount((double) totalAmount);
+        order.setCreatedAt(new Date());
         return orderRepository.save(order);
     }
 
@@ -147,6 +150,7 @@ public class PlaceOrderService {
 
     private Product getProductEntity(String productId) {
         return productRepository.findById(productId)
+                .filter(product -> !product.isDeleted())
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
     }
 }
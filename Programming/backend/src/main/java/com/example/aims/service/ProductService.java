@@ -1,6 +1,13 @@
 package com.example.aims.service;
 
+import com.example.aims.dto.FacetBrowseDTO;
+import com.example.aims.dto.ProductBatchDTO;
+import com.example.aims.dto.ProductChangeFeedDTO;
 import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.ProductPageDTO;
+import com.example.aims.dto.ProductPatchDTO;
+import com.example.aims.dto.ProductPatchResultDTO;
+import com.example.aims.dto.SuggestionDTO;
 import com.example.aims.model.*;
 import com.example.aims.repository.*;
 
@@ -11,16 +18,25 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface ProductService {
     List<ProductDTO> getAllProducts();
     ProductDTO getProductById(String id);
+    ProductBatchDTO getProductsByIds(List<String> ids);
     List<ProductDTO> getProductsByCategory(String category);
     List<ProductDTO> searchProducts(String keyword);
+    ProductPageDTO getProductPage(String category, String keyword, String sort, String after, Integer limit);
+    void exportProducts(Consumer<ProductDTO> consumer);
+    List<SuggestionDTO> suggestProducts(String prefix, Integer limit);
+    FacetBrowseDTO browseProducts(Map<String, List<String>> filters, Integer limit, Integer offset);
+    ProductChangeFeedDTO getProductChanges(Long since, Integer limit);
     ProductDTO createProduct(ProductDTO productDTO, String managerID);
     ProductDTO updateProduct(String id, ProductDTO productDTO);
+    ProductPatchResultDTO patchProducts(List<ProductPatchDTO> patches);
     void deleteProduct(String id);
 }
 
@@ -93,15 +109,7 @@ class ProductServiceImpl implements ProductService {
     public List<ProductDTO> searchProducts(String keyword) {
         // Again, mixes querying and DTO transformation.
 
-        List<Product> products = productRepository.findByTitleContainingIgnoreCase(keyword);
-        List<ProductDTO> productDTOs = new ArrayList<>();
-        
-        for (Product product : products) {
-            ProductDTO dto = convertToDTO(product);
-            productDTOs.add(dto);
-        }
-        
-        return productDTOs;
+        return productRepository.findAllWithDetails(null, keyword);
     }
 
     @Transactional
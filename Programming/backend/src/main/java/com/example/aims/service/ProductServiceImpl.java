@@ -1,59 +1,250 @@
 package com.example.aims.service;
 
+import com.example.aims.dto.FacetBrowseDTO;
+import com.example.aims.dto.ProductBatchDTO;
+import com.example.aims.dto.ProductChangeDTO;
+import com.example.aims.dto.ProductChangeFeedDTO;
 import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.ProductPageDTO;
+import com.example.aims.dto.ProductPatchDTO;
+import com.example.aims.dto.ProductPatchResultDTO;
+import com.example.aims.dto.SuggestionDTO;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.exception.ConflictException;
 import com.example.aims.exception.ResourceNotFoundException;
 import com.example.aims.factory.ProductFactory;
 import com.example.aims.mapper.ProductMapper;
 import com.example.aims.model.*;
 import com.example.aims.repository.*;
+import com.example.aims.service.catalog.ProductCatalog;
+import com.example.aims.service.inventory.HotStockService;
+import com.example.aims.service.inventory.InventoryLedgerService;
+import com.example.aims.service.search.ProductFacetIndex;
+import com.example.aims.service.search.ProductSearchIndex;
+import com.example.aims.service.search.ProductSuggestionIndex;
+import com.example.aims.util.CursorCodec;
 import com.example.aims.validator.ProductValidator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_PATCH_SIZE = 10000;
+    private static final int DEFAULT_CHANGE_COUNT = 100;
+    private static final int MAX_CHANGE_COUNT = 1000;
+    private static final int DEFAULT_SUGGESTION_COUNT = 10;
+    private static final int MAX_SUGGESTION_COUNT = 50;
+
     private final ProductRepository productRepository;
-    private final BookRepository bookRepository;
-    private final CDRepository cdRepository;
-    private final DVDRepository dvdRepository;
     private final ShopItemRepository shopItemRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductChangeLogRepository productChangeLogRepository;
     private final UsersRepository userRepository;
     private final ProductMapper productMapper;
     private final ProductValidator productValidator;
     private final ProductFactory productFactory;
+    private final ProductCatalog productCatalog;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestionIndex productSuggestionIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HotStockService hotStockService;
+    private final InventoryLedgerService inventoryLedger;
 
     @Override
     public List<ProductDTO> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(productMapper::toDTO)
-                .collect(Collectors.toList());
+        if (productCatalog.isLoaded()) {
+            return productCatalog.findAll();
+        }
+        return productRepository.findAllWithDetails(null, null);
     }
 
     @Override
     public ProductDTO getProductById(String id) {
+        if (productCatalog.isLoaded()) {
+            return productCatalog.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+        }
         Product product = productRepository.findById(id)
+                .filter(found -> !found.isDeleted())
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
         return productMapper.toDTO(product);
     }
 
+    @Override
+    public ProductBatchDTO getProductsByIds(List<String> ids) {
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (uniqueIds.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("At most " + MAX_BATCH_SIZE + " ids can be requested at once");
+        }
+        List<ProductDTO> products = findAllInOrder(uniqueIds);
+
+        Set<String> found = new HashSet<>();
+        for (ProductDTO product : products) {
+            found.add(product.getProductID());
+        }
+        List<String> missingIds = new ArrayList<>();
+        for (String id : uniqueIds) {
+            if (!found.contains(id)) {
+                missingIds.add(id);
+            }
+        }
+        return new ProductBatchDTO(products, missingIds);
+    }
+
     @Override
     public List<ProductDTO> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category).stream()
-                .map(productMapper::toDTO)
-                .collect(Collectors.toList());
+        if (productCatalog.isLoaded()) {
+            return productCatalog.findByCategory(category);
+        }
+        return productRepository.findAllWithDetails(category, null);
     }
 
     @Override
     public List<ProductDTO> searchProducts(String keyword) {
-        return productRepository.findByTitleContainingIgnoreCase(keyword).stream()
-                .map(productMapper::toDTO)
-                .collect(Collectors.toList());
+        if (productSearchIndex.isLoaded()) {
+            return findAllInOrder(productSearchIndex.search(keyword));
+        }
+        return productRepository.findAllWithDetails(null, keyword);
+    }
+
+    @Override
+    public ProductPageDTO getProductPage(String category, String keyword, String sort, String after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // Keyword pages rank like searchProducts; the SQL title match is only the fallback while the index loads
+        if (keyword != null && category == null && productSearchIndex.isLoaded()) {
+            return getSearchPage(keyword, after, pageSize);
+        }
+        ProductSortKey sortKey = ProductSortKey.fromParam(sort);
+
+        Object afterValue = null;
+        String afterId = null;
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = CursorCodec.decode(after);
+            afterValue = sortKey.parseValue(cursor[0]);
+            afterId = cursor[1];
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<ProductDTO> products = productRepository.findPageWithDetails(category, keyword, sortKey,
+                afterValue, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (products.size() > pageSize) {
+            products = products.subList(0, pageSize);
+            ProductDTO last = products.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(String.valueOf(sortKey.valueOf(last)), last.getProductID());
+        }
+        return new ProductPageDTO(products, nextCursor);
+    }
+
+    private ProductPageDTO getSearchPage(String keyword, String after, int pageSize) {
+        double afterScore = 0;
+        String afterId = null;
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = CursorCodec.decode(after);
+            try {
+                afterScore = Double.parseDouble(cursor[0]);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            afterId = cursor[1];
+        }
+
+        // Fetch one extra hit to know whether another page exists
+        List<ProductSearchIndex.Hit> hits = productSearchIndex.searchPage(keyword, afterScore, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (hits.size() > pageSize) {
+            hits = hits.subList(0, pageSize);
+            ProductSearchIndex.Hit last = hits.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(Double.toString(last.getScore()), last.getProductId());
+        }
+        List<String> ids = new ArrayList<>(hits.size());
+        for (ProductSearchIndex.Hit hit : hits) {
+            ids.add(hit.getProductId());
+        }
+        return new ProductPageDTO(findAllInOrder(ids), nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportProducts(Consumer<ProductDTO> consumer) {
+        productRepository.streamWithDetails(EXPORT_FETCH_SIZE, consumer);
+    }
+
+    @Override
+    public List<SuggestionDTO> suggestProducts(String prefix, Integer limit) {
+        int count = limit == null ? DEFAULT_SUGGESTION_COUNT : limit;
+        if (count <= 0 || count > MAX_SUGGESTION_COUNT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_SUGGESTION_COUNT);
+        }
+        return productSuggestionIndex.suggest(prefix, count);
+    }
+
+    @Override
+    public FacetBrowseDTO browseProducts(Map<String, List<String>> filters, Integer limit, Integer offset) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        int start = offset == null ? 0 : offset;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (start < 0) {
+            throw new BadRequestException("Offset must not be negative");
+        }
+        for (String facet : filters.keySet()) {
+            if (!ProductFacetIndex.FACETS.contains(facet)) {
+                throw new BadRequestException("Invalid facet: " + facet);
+            }
+        }
+        ProductFacetIndex.Result result = productFacetIndex.isLoaded()
+                ? productFacetIndex.query(filters)
+                : ProductFacetIndex.query(productRepository.findAllWithDetails(null, null), filters);
+        List<String> ids = result.getProductIds();
+        List<String> pageIds = ids.subList(Math.min(start, ids.size()), Math.min(start + pageSize, ids.size()));
+        return new FacetBrowseDTO(findAllInOrder(pageIds), ids.size(), result.getCounts());
+    }
+
+    @Override
+    public ProductChangeFeedDTO getProductChanges(Long since, Integer limit) {
+        long after = since == null ? 0 : since;
+        int count = limit == null ? DEFAULT_CHANGE_COUNT : limit;
+        if (after < 0) {
+            throw new BadRequestException("since cannot be negative");
+        }
+        if (count <= 0 || count > MAX_CHANGE_COUNT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_CHANGE_COUNT);
+        }
+
+        // Fetch one extra entry to know whether the consumer is caught up
+        List<ProductChangeDTO> changes = productChangeLogRepository.findSince(after, count + 1);
+        boolean hasMore = changes.size() > count;
+        if (hasMore) {
+            changes = changes.subList(0, count);
+        }
+        long nextSince = changes.isEmpty() ? after : changes.get(changes.size() - 1).getSeq();
+        return new ProductChangeFeedDTO(changes, nextSince, hasMore);
     }
 
     @Override
@@ -65,56 +256,160 @@ public class ProductServiceImpl implements ProductService {
 
         productValidator.validateProductCreation(productDTO);
         
-        Product product = productFactory.createProduct(productDTO);
-        productRepository.save(product);
-        
-        createTypeSpecificProduct(productDTO, product);
+        // Saving the Book/CD/DVD subclass writes the Product row and the subtype row together
+        Product product = productRepository.save(productFactory.createProduct(productDTO));
         
         Users manager = userRepository.findById(managerID)
                 .orElseThrow(() -> new ResourceNotFoundException("Users", "id", managerID));
         
         createShopItem(product, manager);
+        if (product.getQuantity() != null) {
+            inventoryLedger.record(product.getProductID(), product.getQuantity(), InventoryLedgerService.Reason.RESTOCK, null);
+        }
         
-        return productMapper.toDTO(product);
+        ProductDTO created = productMapper.toDTO(product);
+        eventPublisher.publishEvent(ProductChangedEvent.created(created));
+        return created;
     }
 
     @Override
     @Transactional
     public ProductDTO updateProduct(String id, ProductDTO productDTO) {
-        productValidator.validateProductUpdate(id, productDTO);
+        productValidator.validateProductUpdate(productDTO);
+        // A full replace without the version read would silently overwrite concurrent edits
+        if (productDTO.getVersion() == null) {
+            throw new BadRequestException("Version is required to update product " + id);
+        }
         
         Product product = productRepository.findById(id)
+                .filter(found -> !found.isDeleted())
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+        if (!productDTO.getVersion().equals(product.getVersion())) {
+            throw new ConflictException("Product " + id + " has been modified since version "
+                    + productDTO.getVersion() + ", current version is " + product.getVersion());
+        }
+        if (productFactory.typeOf(productDTO.getCategory()) != product.getClass()) {
+            throw new BadRequestException("Cannot change category of product " + id
+                    + " from " + product.getCategory() + " to " + productDTO.getCategory());
+        }
 
+        Integer previousQuantity = product.getQuantity();
+        boolean quantityChanged = productDTO.getQuantity() != null
+                && !productDTO.getQuantity().equals(previousQuantity);
+        if (quantityChanged) {
+            hotStockService.beforeQuantitySet();
+        }
         updateBaseProduct(product, productDTO);
         updateTypeSpecificProduct(product, productDTO);
+        // Flush here so an edit committed between our read and write fails this call with 409,
+        // and so the DTO below carries the new version. It is built from the entity in hand.
+        productRepository.saveAndFlush(product);
+        if (quantityChanged) {
+            int previous = previousQuantity == null ? 0 : previousQuantity;
+            // A PUT echoes the quantity it read, and checkouts of a hot product take stock from its
+            // counters without bumping the version. Only the edit goes to the counters, or units sold
+            // since the last reconcile would be put back on sale.
+            Integer applied = hotStockService.onQuantityChanged(id, product.getQuantity() - previous);
+            inventoryLedger.recordQuantitySet(id, previous,
+                    applied == null ? product.getQuantity() : previous + applied);
+        }
         
-        return productMapper.toDTO(product);
+        ProductDTO updated = productMapper.toDTO(product);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(updated));
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public ProductPatchResultDTO patchProducts(List<ProductPatchDTO> patches) {
+        // A repeated id keeps its last patch, as if the patches were applied one after another
+        Map<String, ProductPatchDTO> byId = new LinkedHashMap<>();
+        for (ProductPatchDTO patch : patches) {
+            if (patch.getProductID() == null || patch.getProductID().isEmpty()) {
+                throw new BadRequestException("Every patch needs a productID");
+            }
+            if (isNegative(patch.getPrice()) || isNegative(patch.getValue())
+                    || (patch.getQuantity() != null && patch.getQuantity() < 0)) {
+                throw new BadRequestException("Price, quantity and value cannot be negative: " + patch.getProductID());
+            }
+            byId.put(patch.getProductID(), patch);
+        }
+        if (byId.size() > MAX_PATCH_SIZE) {
+            throw new BadRequestException("At most " + MAX_PATCH_SIZE + " products can be patched at once");
+        }
+
+        if (byId.values().stream().anyMatch(patch -> patch.getQuantity() != null)) {
+            hotStockService.beforeQuantitySet();
+        }
+        Map<String, Integer> quantityChanges = productRepository.patchAll(new ArrayList<>(byId.values()));
+        Set<String> updatedIds = quantityChanges.keySet();
+        for (Map.Entry<String, Integer> change : quantityChanges.entrySet()) {
+            Integer quantity = byId.get(change.getKey()).getQuantity();
+            if (quantity != null) {
+                // The returned change is against Product.quantity, which is stale for a hot product
+                Integer shardQuantity = hotStockService.onQuantitySet(change.getKey(), quantity);
+                inventoryLedger.recordQuantitySet(change.getKey(),
+                        shardQuantity != null ? shardQuantity : quantity - change.getValue(), quantity);
+            }
+        }
+        if (!updatedIds.isEmpty()) {
+            for (ProductDTO updated : productRepository.findAllWithDetailsById(updatedIds)) {
+                eventPublisher.publishEvent(ProductChangedEvent.updated(updated));
+            }
+        }
+
+        List<String> missingIds = new ArrayList<>();
+        for (String id : byId.keySet()) {
+            if (!updatedIds.contains(id)) {
+                missingIds.add(id);
+            }
+        }
+        return new ProductPatchResultDTO(updatedIds.size(), missingIds);
     }
 
     @Override
     @Transactional
     public void deleteProduct(String id) {
         Product product = productRepository.findById(id)
+                .filter(found -> !found.isDeleted())
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
         
-        deleteTypeSpecificProduct(product);
-        deleteShopItem(id);
-        productRepository.deleteById(id);
+        // Soft delete: orders keep referencing the row, ProductTombstoneCompactor purges it later
+        product.setDeleted(true);
+        product.setDeletedAt(new Date());
+        // Flushed so the event carries the version the delete commits
+        productRepository.saveAndFlush(product);
+        cartItemRepository.deleteByProductId(id);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id, product.getVersion()));
     }
 
-    private void createTypeSpecificProduct(ProductDTO dto, Product product) {
-        switch (product.getCategory().toLowerCase()) {
-            case "book":
-                bookRepository.save(productFactory.createBook(dto, product));
-                break;
-            case "cd":
-                cdRepository.save(productFactory.createCD(dto, product));
-                break;
-            case "dvd":
-                dvdRepository.save(productFactory.createDVD(dto, product));
-                break;
+    /**
+     * Resolves ids from the catalog, or with a single projection query while the catalog is loading.
+     * Unknown ids are skipped and the order of {@code ids} is kept.
+     */
+    private List<ProductDTO> findAllInOrder(List<String> ids) {
+        if (productCatalog.isLoaded()) {
+            List<ProductDTO> products = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                productCatalog.findById(id).ifPresent(products::add);
+            }
+            return products;
+        }
+        Map<String, ProductDTO> byId = new HashMap<>();
+        for (ProductDTO product : productRepository.findAllWithDetailsById(ids)) {
+            byId.put(product.getProductID(), product);
+        }
+        List<ProductDTO> products = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (byId.containsKey(id)) {
+                products.add(byId.get(id));
+            }
         }
+        return products;
+    }
+
+    private static boolean isNegative(Double amount) {
+        return amount != null && amount < 0;
     }
 
     private void updateBaseProduct(Product product, ProductDTO dto) {
@@ -129,26 +424,19 @@ public class ProductServiceImpl implements ProductService {
         product.setDimensions(dto.getDimensions());
         product.setWeight(dto.getWeight());
         product.setImageURL(dto.getImageURL());
-        productRepository.save(product);
     }
 
     private void updateTypeSpecificProduct(Product product, ProductDTO dto) {
-        switch (product.getCategory().toLowerCase()) {
-            case "book":
-                updateBook(product, dto);
-                break;
-            case "cd":
-                updateCD(product, dto);
-                break;
-            case "dvd":
-                updateDVD(product, dto);
-                break;
-        }
-    }
-
-    private void updateBook(Product product, ProductDTO dto) {
-        Book book = bookRepository.findById(product.getProductID())
-                .orElseGet(() -> productFactory.createBook(dto, product));
+        if (product instanceof Book book) {
+            updateBook(book, dto);
+        } else if (product instanceof CD cd) {
+            updateCD(cd, dto);
+        } else if (product instanceof DVD dvd) {
+            updateDVD(dvd, dto);
+        }
+    }
+
+    private void updateBook(Book book, ProductDTO dto) {
         book.setCoverType(dto.getCoverType());
         book.setAuthors(dto.getAuthors());
         book.setPublisher(dto.getPublisher());
@@ -156,23 +444,17 @@ public class ProductServiceImpl implements ProductService {
         book.setLanguage(dto.getLanguage());
         book.setGenre(dto.getGenre());
         book.setPubDate(dto.getPubDate());
-        bookRepository.save(book);
     }
 
-    private void updateCD(Product product, ProductDTO dto) {
-        CD cd = cdRepository.findById(product.getProductID())
-                .orElseGet(() -> productFactory.createCD(dto, product));
+    private void updateCD(CD cd, ProductDTO dto) {
         cd.setTracklist(dto.getTracklist());
         cd.setArtist(dto.getArtist());
         cd.setReleaseDate(dto.getReleaseDate());
         cd.setRecordLabel(dto.getRecordLabel());
         cd.setMusicType(dto.getMusicType());
-        cdRepository.save(cd);
     }
 
-    private void updateDVD(Product product, ProductDTO dto) {
-        DVD dvd = dvdRepository.findById(product.getProductID())
-                .orElseGet(() -> productFactory.createDVD(dto, product));
+    private void updateDVD(DVD dvd, ProductDTO dto) {
         dvd.setDiscType(dto.getDiscType());
         dvd.setRuntime(dto.getRuntime());
         dvd.setStudio(dto.getStudio());
@@ -181,7 +463,6 @@ public class ProductServiceImpl implements ProductService {
         dvd.setReleaseDate(dto.getReleaseDate());
         dvd.setLanguage(dto.getLanguage());
         dvd.setGenre(dto.getGenre());
-        dvdRepository.save(dvd);
     }
 
     private void createShopItem(Product product, Users manager) {
@@ -192,24 +473,4 @@ public class ProductServiceImpl implements ProductService {
         shopItem.setManager(manager);
         shopItemRepository.save(shopItem);
     }
-
-    private void deleteTypeSpecificProduct(Product product) {
-        switch (product.getCategory().toLowerCase()) {
-            case "book":
-                bookRepository.deleteById(product.getProductID());
-                break;
-            case "cd":
-                cdRepository.deleteById(product.getProductID());
-                break;
-            case "dvd":
-                dvdRepository.deleteById(product.getProductID());
-                break;
-        }
-    }
-
-    private void deleteShopItem(String productId) {
-        ShopItem.ShopItemId shopItemId = new ShopItem.ShopItemId();
-        shopItemId.setProductID(productId);
-        shopItemRepository.deleteById(shopItemId);
-    }
 } 
\ No newline at end of file
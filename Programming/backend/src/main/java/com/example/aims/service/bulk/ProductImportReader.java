@@ -0,0 +1,166 @@
+package com.example.aims.service.bulk;
+
+import com.example.aims.dto.ProductDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads an import file one row at a time, so a large supplier catalog is never held in memory.
+ * CSV files start with a header of ProductDTO property names; NDJSON files hold one ProductDTO
+ * object per line. A row that cannot be parsed is returned with an error instead of a product.
+ */
+public class ProductImportReader {
+
+    public enum Format { CSV, NDJSON }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Row {
+        private final int line;
+        private final ProductDTO product;
+        private final String error;
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private List<String> header;
+    private int lineNumber;
+
+    public ProductImportReader(InputStream in, Format format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The next row of the file, or null once the file is exhausted. Blank lines are skipped.
+     */
+    public Row next() throws IOException {
+        return format == Format.CSV ? nextCsv() : nextNdjson();
+    }
+
+    private Row nextNdjson() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        try {
+            return new Row(lineNumber, objectMapper.readValue(line, ProductDTO.class), null);
+        } catch (JsonProcessingException e) {
+            return new Row(lineNumber, null, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private Row nextCsv() throws IOException {
+        if (header == null) {
+            List<String> names = readRecord();
+            if (names == null) {
+                return null;
+            }
+            header = new ArrayList<>(names.size());
+            for (String name : names) {
+                // Strip a UTF-8 byte order mark left by spreadsheet exports
+                header.add(name.replace("\uFEFF", "").trim());
+            }
+        }
+
+        List<String> values;
+        int startLine;
+        do {
+            startLine = lineNumber + 1;
+            values = readRecord();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isBlank());
+
+        if (values.size() != header.size()) {
+            return new Row(startLine, null,
+                    "Expected " + header.size() + " columns but found " + values.size());
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            // Empty cells mean "no value", not an empty string
+            if (!values.get(i).isEmpty()) {
+                fields.put(header.get(i), values.get(i));
+            }
+        }
+        try {
+            return new Row(startLine, objectMapper.convertValue(fields, ProductDTO.class), null);
+        } catch (IllegalArgumentException e) {
+            return new Row(startLine, null, "Invalid value: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads one RFC 4180 record: fields separated by commas, optionally quoted, with "" as an
+     * escaped quote. A quoted field may span several lines.
+     */
+    private List<String> readRecord() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        lineNumber++;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                lineNumber++;
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.aims.service.bulk;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.ProductImportErrorDTO;
+import com.example.aims.dto.ProductImportResultDTO;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.exception.ResourceNotFoundException;
+import com.example.aims.repository.ProductRepository;
+import com.example.aims.repository.UsersRepository;
+import com.example.aims.service.inventory.InventoryLedgerService;
+import com.example.aims.validator.ProductValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Imports a supplier catalog in chunks. Each chunk is validated in memory, checked against the
+ * database with one IN query, and written with one JDBC batch per table inside its own transaction.
+ * If the database rejects a chunk, its rows are retried one by one, so a bad row is reported on its own
+ * line without aborting the rest of the file.
+ */
+@Service
+public class ProductImportService {
+    static final int CHUNK_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final UsersRepository usersRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryLedgerService inventoryLedger;
+    private final ProductValidator productValidator;
+
+    public ProductImportService(ProductRepository productRepository, UsersRepository usersRepository,
+                                ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager, InventoryLedgerService inventoryLedger,
+                                ProductValidator productValidator) {
+        this.productRepository = productRepository;
+        this.usersRepository = usersRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.inventoryLedger = inventoryLedger;
+        this.productValidator = productValidator;
+    }
+
+    public ProductImportResultDTO importProducts(InputStream in, ProductImportReader.Format format, String managerID) {
+        if (!usersRepository.existsById(managerID)) {
+            throw new ResourceNotFoundException("Users", "id", managerID);
+        }
+
+        ProductImportReader reader = new ProductImportReader(in, format, objectMapper);
+        List<ProductImportErrorDTO> errors = new ArrayList<>();
+        // Ids seen earlier in the file, so a repeated row is rejected before it reaches the database
+        Set<String> seenIds = new HashSet<>();
+        List<ProductImportReader.Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        int received = 0;
+        int imported = 0;
+        try {
+            ProductImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                received++;
+                String error = row.getError() != null ? row.getError() : validate(row.getProduct(), seenIds);
+                if (error != null) {
+                    errors.add(new ProductImportErrorDTO(row.getLine(), productIdOf(row), error));
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    imported += writeChunk(chunk, managerID, errors);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Could not read import file: " + e.getMessage());
+        }
+        imported += writeChunk(chunk, managerID, errors);
+        return new ProductImportResultDTO(received, imported, errors);
+    }
+
+    /**
+     * Required fields and value ranges, plus ids repeated in the file. Existence is checked per chunk.
+     */
+    private String validate(ProductDTO product, Set<String> seenIds) {
+        if (product.getProductID() == null || product.getProductID().isEmpty()) {
+            product.setProductID(UUID.randomUUID().toString());
+        }
+        try {
+            productValidator.validateProductFields(product);
+        } catch (BadRequestException e) {
+            return e.getMessage();
+        }
+        if (!seenIds.add(product.getProductID())) {
+            return "Duplicate product ID " + product.getProductID() + " in file.";
+        }
+        return null;
+    }
+
+    private int writeChunk(List<ProductImportReader.Row> chunk, String managerID, List<ProductImportErrorDTO> errors) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = new ArrayList<>(chunk.size());
+        for (ProductImportReader.Row row : chunk) {
+            ids.add(row.getProduct().getProductID());
+        }
+        Set<String> existing = productRepository.findExistingIds(ids);
+
+        List<ProductImportReader.Row> accepted = new ArrayList<>(chunk.size());
+        List<ProductDTO> products = new ArrayList<>(chunk.size());
+        for (ProductImportReader.Row row : chunk) {
+            String id = row.getProduct().getProductID();
+            if (existing.contains(id)) {
+                errors.add(new ProductImportErrorDTO(row.getLine(), id, "Product with ID " + id + " already exists."));
+            } else {
+                accepted.add(row);
+                products.add(row.getProduct());
+            }
+        }
+        if (products.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            insert(products, managerID);
+            return products.size();
+        } catch (DataAccessException e) {
+            // The chunk was rolled back as a whole; retry its rows one by one so each error points at its row
+            return insertOneByOne(accepted, managerID, errors);
+        }
+    }
+
+    private int insertOneByOne(List<ProductImportReader.Row> rows, String managerID, List<ProductImportErrorDTO> errors) {
+        int inserted = 0;
+        for (ProductImportReader.Row row : rows) {
+            try {
+                insert(List.of(row.getProduct()), managerID);
+                inserted++;
+            } catch (DataAccessException e) {
+                // e.g. an id inserted concurrently or a value the column rejects
+                errors.add(new ProductImportErrorDTO(row.getLine(), row.getProduct().getProductID(),
+                        e.getMostSpecificCause().getMessage()));
+            }
+        }
+        return inserted;
+    }
+
+    private void insert(List<ProductDTO> products, String managerID) {
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.insertAllWithDetails(products, managerID);
+            for (ProductDTO product : products) {
+                eventPublisher.publishEvent(ProductChangedEvent.created(product));
+                if (product.getQuantity() != null) {
+                    inventoryLedger.record(product.getProductID(), product.getQuantity(),
+                            InventoryLedgerService.Reason.RESTOCK, null);
+                }
+            }
+        });
+    }
+
+    private static String productIdOf(ProductImportReader.Row row) {
+        return row.getProduct() == null ? null : row.getProduct().getProductID();
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.aims.service.cart;
+
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.exception.ResourceNotFoundException;
+import com.example.aims.repository.CartItemRepository;
+import com.example.aims.repository.UsersRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Write-behind cart store. Carts are loaded from CartItems on first use and then served from memory;
+ * every change marks the customer dirty, and the flusher writes the latest state of all dirty carts
+ * in coalesced batches, so ten clicks between two flushes cost one write.
+ * Each cart is locked on its own, so different customers never contend.
+ * <p>
+ * The store assumes it is the only writer of CartItems for the carts it holds, which is true as long
+ * as a customer's requests reach a single application instance.
+ */
+@Component
+public class CartStore {
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final CartItemRepository cartItemRepository;
+    private final UsersRepository usersRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long idleEvictionMillis;
+
+    private final Map<String, Cart> carts = new ConcurrentHashMap<>();
+    // Customers whose in-memory cart is ahead of CartItems
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    // Keeps flushes in order, so an older snapshot can never overwrite a newer one
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private static class Cart {
+        // productID -> quantity, in the order the products were added
+        private final Map<String, Integer> items;
+        private long lastAccess;
+        // Set under the cart's lock when the cart leaves the store; holders must look it up again
+        private boolean evicted;
+
+        private Cart(Map<String, Integer> items) {
+            this.items = items;
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    public CartStore(CartItemRepository cartItemRepository, UsersRepository usersRepository,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${aims.cart.idle-eviction:PT30M}") Duration idleEviction) {
+        this.cartItemRepository = cartItemRepository;
+        this.usersRepository = usersRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idleEvictionMillis = idleEviction.toMillis();
+    }
+
+    /**
+     * Copy of the customer's cart, productID -> quantity.
+     */
+    public Map<String, Integer> getItems(String customerId) {
+        return withCart(customerId, false, LinkedHashMap::new);
+    }
+
+    public void remove(String customerId, String productId) {
+        withCart(customerId, true, items -> {
+            if (items.remove(productId) == null) {
+                throw new ResourceNotFoundException("Cart item not found");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Whether the customer's cart is held in memory. A cart that is not is up to date in CartItems.
+     */
+    public boolean isResident(String customerId) {
+        return carts.containsKey(customerId);
+    }
+
+    public void clear(String customerId) {
+        if (!carts.containsKey(customerId)) {
+            // No need to read a cart that is about to be emptied
+            requireCustomer(customerId);
+            carts.putIfAbsent(customerId, new Cart(new LinkedHashMap<>()));
+        }
+        withCart(customerId, true, items -> {
+            items.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Applies {@code changes} to a copy of the cart and swaps it in only if they all succeed,
+     * so a batch that fails half way leaves the cart as it was. Returns a copy of the new cart.
+     */
+    public Map<String, Integer> modify(String customerId, Consumer<Map<String, Integer>> changes) {
+        return withCart(customerId, true, items -> {
+            Map<String, Integer> updated = new LinkedHashMap<>(items);
+            changes.accept(updated);
+            items.clear();
+            items.putAll(updated);
+            return new LinkedHashMap<>(updated);
+        });
+    }
+
+    /**
+     * Once the current transaction commits, takes the ordered quantities out of the customer's cart.
+     * Lines added while the order was being placed stay in the cart. Nothing changes on rollback.
+     */
+    public void removeAfterCommit(String customerId, Map<String, Integer> ordered) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                withCart(customerId, true, items -> {
+                    for (Map.Entry<String, Integer> line : ordered.entrySet()) {
+                        items.computeIfPresent(line.getKey(),
+                                (productId, quantity) -> quantity > line.getValue() ? quantity - line.getValue() : null);
+                    }
+                    return null;
+                });
+            }
+        });
+    }
+
+    // Deleted products are also removed from CartItems by the delete itself; this covers loaded carts
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.DELETED) {
+            return;
+        }
+        for (Map.Entry<String, Cart> entry : carts.entrySet()) {
+            Cart cart = entry.getValue();
+            synchronized (cart) {
+                if (!cart.evicted && cart.items.remove(event.getProductId()) != null) {
+                    dirty.add(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes every dirty cart, then drops carts that are clean and have been idle for a while.
+     */
+    @Scheduled(fixedDelayString = "${aims.cart.flush-interval:PT1S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<String> customerIds = new ArrayList<>(dirty);
+            for (int from = 0; from < customerIds.size(); from += FLUSH_BATCH_SIZE) {
+                writeBatch(customerIds.subList(from, Math.min(from + FLUSH_BATCH_SIZE, customerIds.size())));
+            }
+            evictIdle();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void writeBatch(List<String> customerIds) {
+        Map<String, Map<String, Integer>> snapshots = new LinkedHashMap<>();
+        for (String customerId : customerIds) {
+            // Cleared before the snapshot, so a change made after it marks the cart dirty again
+            dirty.remove(customerId);
+            Cart cart = carts.get(customerId);
+            if (cart == null) {
+                continue;
+            }
+            synchronized (cart) {
+                snapshots.put(customerId, new LinkedHashMap<>(cart.items));
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> cartItemRepository.replaceCarts(snapshots));
+        } catch (RuntimeException e) {
+            // Retried on the next flush
+            dirty.addAll(snapshots.keySet());
+        }
+    }
+
+    private void evictIdle() {
+        long idleSince = System.currentTimeMillis() - idleEvictionMillis;
+        for (Map.Entry<String, Cart> entry : carts.entrySet()) {
+            Cart cart = entry.getValue();
+            synchronized (cart) {
+                if (cart.lastAccess < idleSince && !dirty.contains(entry.getKey())) {
+                    cart.evicted = true;
+                    carts.remove(entry.getKey(), cart);
+                }
+            }
+        }
+    }
+
+    private <T> T withCart(String customerId, boolean modifies, Function<Map<String, Integer>, T> action) {
+        while (true) {
+            Cart cart = carts.get(customerId);
+            if (cart == null) {
+                Cart loaded = load(customerId);
+                Cart existing = carts.putIfAbsent(customerId, loaded);
+                cart = existing != null ? existing : loaded;
+            }
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                cart.lastAccess = System.currentTimeMillis();
+                T result = action.apply(cart.items);
+                if (modifies) {
+                    dirty.add(customerId);
+                }
+                return result;
+            }
+        }
+    }
+
+    private Cart load(String customerId) {
+        Map<String, Integer> items = new LinkedHashMap<>();
+        for (Object[] row : cartItemRepository.findQuantitiesByCustomerId(customerId)) {
+            items.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        if (items.isEmpty()) {
+            // Only an empty cart can belong to an unknown customer
+            requireCustomer(customerId);
+        }
+        return new Cart(items);
+    }
+
+    private void requireCustomer(String customerId) {
+        if (!usersRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException("Users", "id", customerId);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.aims.service.catalog;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.repository.ProductRepository;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process read model of the catalog: fully mapped ProductDTOs indexed by id and category.
+ * Built at startup, kept up to date from committed {@link ProductChangedEvent}s,
+ * and rebuilt on demand. Returned DTOs are shared and must be treated as read-only.
+ */
+@Component
+public class ProductCatalog {
+    private static final int LOAD_FETCH_SIZE = 500;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AtomicLong version = new AtomicLong();
+    // Serializes rebuilds; product changes only take the catalog's own monitor
+    private final Object rebuildLock = new Object();
+
+    // Null until the first build completes; readers fall back to the database meanwhile
+    private volatile Snapshot snapshot;
+    private volatile long lastModified;
+    // Changes committed while a rebuild streams the table, replayed on the new snapshot; null otherwise
+    private List<Change> changesDuringRebuild;
+
+    public ProductCatalog(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reloads the whole catalog from the database and swaps it in atomically.
+     * The table is streamed without holding the catalog lock, so committed writes keep being applied
+     * to the live snapshot meanwhile; they are also recorded and replayed on the new snapshot before the swap.
+     *
+     * @return The new catalog version
+     */
+    public long rebuild() {
+        synchronized (rebuildLock) {
+            long newVersion;
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                newVersion = version.incrementAndGet();
+                changesDuringRebuild = new ArrayList<>();
+            }
+            Snapshot fresh = new Snapshot();
+            try {
+                readOnlyTransaction.executeWithoutResult(status ->
+                        productRepository.streamWithDetails(LOAD_FETCH_SIZE, product -> fresh.put(product, newVersion, now)));
+                synchronized (this) {
+                    // The version check keeps rows the stream read after the change was committed
+                    for (Change change : changesDuringRebuild) {
+                        fresh.apply(change.event, change.version, change.modifiedAt);
+                    }
+                    snapshot = fresh;
+                    lastModified = Math.max(lastModified, now);
+                }
+            } finally {
+                synchronized (this) {
+                    changesDuringRebuild = null;
+                }
+            }
+            return newVersion;
+        }
+    }
+
+    @TransactionalEventListener
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        Snapshot current = snapshot;
+        if (current == null && changesDuringRebuild == null) {
+            return;
+        }
+        long newVersion = version.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (current != null) {
+            current.apply(event, newVersion, now);
+        }
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(new Change(event, newVersion, now));
+        }
+        lastModified = now;
+    }
+
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Catalog-wide version, advanced by every committed product change and every rebuild.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Time of the last change to any product, in epoch milliseconds.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Catalog version at which the product last changed, empty if it is not in the catalog.
+     */
+    public Optional<Long> getProductVersion(String id) {
+        Stamp stamp = snapshot.stamps.get(id);
+        return stamp == null ? Optional.empty() : Optional.of(stamp.version);
+    }
+
+    /**
+     * Time the product last changed, in epoch milliseconds, empty if it is not in the catalog.
+     */
+    public Optional<Long> getProductLastModified(String id) {
+        Stamp stamp = snapshot.stamps.get(id);
+        return stamp == null ? Optional.empty() : Optional.of(stamp.modifiedAt);
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.byId.size();
+    }
+
+    public Optional<ProductDTO> findById(String id) {
+        return Optional.ofNullable(snapshot.byId.get(id));
+    }
+
+    public List<ProductDTO> findAll() {
+        return new ArrayList<>(snapshot.byId.values());
+    }
+
+    public List<ProductDTO> findByCategory(String category) {
+        Snapshot current = snapshot;
+        Set<String> ids = current.byCategory.getOrDefault(category, Collections.emptySet());
+        List<ProductDTO> products = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            ProductDTO product = current.byId.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    private static final class Snapshot {
+        private final Map<String, ProductDTO> byId = new ConcurrentHashMap<>();
+        private final Map<String, Set<String>> byCategory = new ConcurrentHashMap<>();
+        private final Map<String, Stamp> stamps = new ConcurrentHashMap<>();
+        // id -> product version of the delete, so an update committed before it cannot bring the product back
+        private final Map<String, Long> tombstones = new ConcurrentHashMap<>();
+
+        private void put(ProductDTO product, long version, long modifiedAt) {
+            stamps.put(product.getProductID(), new Stamp(version, modifiedAt));
+            ProductDTO previous = byId.put(product.getProductID(), product);
+            if (previous != null && previous.getCategory() != null
+                    && !previous.getCategory().equals(product.getCategory())) {
+                byCategory.getOrDefault(previous.getCategory(), Collections.emptySet()).remove(product.getProductID());
+            }
+            if (product.getCategory() != null) {
+                byCategory.computeIfAbsent(product.getCategory(), key -> ConcurrentHashMap.newKeySet())
+                        .add(product.getProductID());
+            }
+        }
+
+        /**
+         * Applies a committed change. After-commit events of concurrent transactions can arrive out of order,
+         * so an update carrying an older product version than the stored one, or than the delete's, is ignored.
+         * A creation clears the tombstone: the id is only reused once the deleted row has been purged.
+         */
+        private void apply(ProductChangedEvent event, long version, long modifiedAt) {
+            if (event.getType() == ProductChangedEvent.Type.DELETED) {
+                remove(event.getProductId(), event.getVersion());
+                return;
+            }
+            ProductDTO product = event.getProduct();
+            if (event.getType() == ProductChangedEvent.Type.CREATED) {
+                tombstones.remove(product.getProductID());
+            } else {
+                Long deletedVersion = tombstones.get(product.getProductID());
+                if (deletedVersion != null && (product.getVersion() == null || product.getVersion() <= deletedVersion)) {
+                    return;
+                }
+            }
+            ProductDTO stored = byId.get(product.getProductID());
+            if (stored != null && stored.getVersion() != null && product.getVersion() != null
+                    && product.getVersion() < stored.getVersion()) {
+                return;
+            }
+            put(product, version, modifiedAt);
+        }
+
+        private void remove(String id, Long deletedVersion) {
+            stamps.remove(id);
+            ProductDTO previous = byId.remove(id);
+            Long tombstone = deletedVersion;
+            if (previous != null && previous.getVersion() != null
+                    && (tombstone == null || previous.getVersion() > tombstone)) {
+                tombstone = previous.getVersion();
+            }
+            if (tombstone != null) {
+                tombstones.merge(id, tombstone, Math::max);
+            }
+            if (previous != null && previous.getCategory() != null) {
+                byCategory.getOrDefault(previous.getCategory(), Collections.emptySet()).remove(id);
+            }
+        }
+    }
+
+    private static final class Change {
+        private final ProductChangedEvent event;
+        private final long version;
+        private final long modifiedAt;
+
+        private Change(ProductChangedEvent event, long version, long modifiedAt) {
+            this.event = event;
+            this.version = version;
+            this.modifiedAt = modifiedAt;
+        }
+    }
+
+    private static final class Stamp {
+        private final long version;
+        private final long modifiedAt;
+
+        private Stamp(long version, long modifiedAt) {
+            this.version = version;
+            this.modifiedAt = modifiedAt;
+        }
+    }
+}
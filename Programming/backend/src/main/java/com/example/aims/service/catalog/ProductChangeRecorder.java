@@ -0,0 +1,53 @@
+package com.example.aims.service.catalog;
+
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.repository.ProductChangeLogRepository;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes every product change to the change log in the transaction that made it, so the log and
+ * the catalog cannot disagree. Changes are buffered for the transaction and inserted as one batch
+ * right before commit, which keeps bulk imports and order placement to a single extra statement.
+ */
+@Component
+public class ProductChangeRecorder {
+    private final ProductChangeLogRepository changeLogRepository;
+
+    public ProductChangeRecorder(ProductChangeLogRepository changeLogRepository) {
+        this.changeLogRepository = changeLogRepository;
+    }
+
+    // A plain listener runs inside the publisher's transaction, unlike the read models' after-commit ones
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Product changes must be published inside a transaction");
+        }
+        @SuppressWarnings("unchecked")
+        List<ProductChangedEvent> pending = (List<ProductChangedEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<ProductChangedEvent> buffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    changeLogRepository.appendAll(buffer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(ProductChangeRecorder.this);
+                }
+            });
+            pending = buffer;
+        }
+        pending.add(event);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.aims.service.catalog;
+
+import com.example.aims.repository.ProductRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Purges soft-deleted products off-peak. Each batch runs in its own short transaction so the
+ * purge never holds locks on a large part of the Product table at once.
+ */
+@Component
+public class ProductTombstoneCompactor {
+    private static final int BATCH_SIZE = 500;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+
+    public ProductTombstoneCompactor(ProductRepository productRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${aims.products.tombstone-retention:P30D}") Duration retention) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+    }
+
+    /**
+     * Purges tombstones older than the retention period, batch by batch. Returns the number purged.
+     */
+    @Scheduled(cron = "${aims.products.tombstone-compaction-cron:0 0 3 * * *}")
+    public int compact() {
+        Date cutoff = new Date(System.currentTimeMillis() - retention.toMillis());
+        int total = 0;
+        int purged;
+        do {
+            purged = transactionTemplate.execute(status -> productRepository.purgeTombstones(cutoff, BATCH_SIZE));
+            total += purged;
+        } while (purged == BATCH_SIZE);
+        return total;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.aims.service.inventory;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.exception.ResourceNotFoundException;
+import com.example.aims.repository.ProductRepository;
+import com.example.aims.repository.ProductStockShardRepository;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Opt-in "hot SKU" inventory for flash sales. The stock of a hot product lives in N counter rows;
+ * a checkout decrements one shard picked at random, so concurrent buyers of the same product lock
+ * different rows and never touch the Product row. Product.quantity becomes a materialized sum that
+ * the reconciler refreshes, publishing the change like any other stock update.
+ * <p>
+ * Every other product keeps the single conditional UPDATE on its Product row.
+ */
+@Service
+public class HotStockService {
+    static final int MAX_SHARDS = 64;
+
+    private final ProductStockShardRepository shardRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    // productID -> number of shards, for products in hot mode
+    private final Map<String, Integer> shardCounts = new ConcurrentHashMap<>();
+    // Stock writers hold the read lock until their transaction ends and a mode switch takes the write
+    // lock, so no transaction that routed a product under its old mode is still open when it changes.
+    // Otherwise a late decrement of the Product row would be overwritten by the next reconcile.
+    private final ReentrantReadWriteLock modeLock = new ReentrantReadWriteLock();
+
+    public HotStockService(ProductStockShardRepository shardRepository, ProductRepository productRepository,
+                           ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+        this.shardRepository = shardRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        shardCounts.putAll(shardRepository.findShardCounts());
+    }
+
+    public boolean isHot(String productId) {
+        return shardCounts.containsKey(productId);
+    }
+
+    /**
+     * Splits the product's current stock across {@code shards} counters, or re-splits it if the
+     * product is already hot.
+     */
+    @Transactional
+    public void enable(String productId, int shards) {
+        if (shards < 2 || shards > MAX_SHARDS) {
+            throw new BadRequestException("Shards must be between 2 and " + MAX_SHARDS);
+        }
+        holdUntilCompletion(modeLock.writeLock());
+        Integer quantity = shardRepository.lockProductQuantity(productId);
+        if (quantity == null) {
+            throw new ResourceNotFoundException("Product", "id", productId);
+        }
+        if (isHot(productId)) {
+            quantity = shardRepository.merge(productId);
+        }
+        shardRepository.split(productId, quantity, shards);
+        Integer previous = shardCounts.put(productId, shards);
+        afterRollback(() -> {
+            if (previous == null) {
+                shardCounts.remove(productId);
+            } else {
+                shardCounts.put(productId, previous);
+            }
+        });
+    }
+
+    /**
+     * Folds the shards back into Product.quantity and returns the product to single-row stock.
+     */
+    @Transactional
+    public void disable(String productId) {
+        holdUntilCompletion(modeLock.writeLock());
+        if (shardRepository.lockProductQuantity(productId) == null) {
+            throw new ResourceNotFoundException("Product", "id", productId);
+        }
+        if (!isHot(productId)) {
+            return;
+        }
+        Integer previous = shardCounts.remove(productId);
+        afterRollback(() -> shardCounts.put(productId, previous));
+        setProductQuantity(productId, shardRepository.merge(productId));
+    }
+
+    /**
+     * Call before writing product quantities, in the same transaction. Holds the mode read lock until
+     * the transaction ends, so no product switches mode before {@link #onQuantitySet} or
+     * {@link #onQuantityChanged} re-splits it.
+     * Like checkouts, it must be taken before any Product row is locked, or it deadlocks with a switch.
+     */
+    public void beforeQuantitySet() {
+        holdUntilCompletion(modeLock.readLock());
+    }
+
+    /**
+     * Applies a manager's edit of a hot product's quantity as a change to the stock its shards hold,
+     * so units sold since the last reconcile stay sold. Stock never goes below zero. Returns the change
+     * actually applied, or null for a product that is not hot. Must run in the transaction that
+     * changed the quantity, after {@link #beforeQuantitySet}.
+     */
+    public Integer onQuantityChanged(String productId, int delta) {
+        Integer shards = shardCounts.get(productId);
+        if (shards == null) {
+            return null;
+        }
+        int previous = shardRepository.merge(productId);
+        int quantity = Math.max(0, previous + delta);
+        shardRepository.split(productId, quantity, shards);
+        return quantity - previous;
+    }
+
+    /**
+     * Re-splits a hot product's stock after a manager set its quantity, even to the value Product
+     * already held: that is only the last reconciled sum. Returns the stock the shards held before,
+     * or null for a product that is not hot. Must run in the transaction that changed the quantity,
+     * after {@link #beforeQuantitySet}.
+     */
+    public Integer onQuantitySet(String productId, int quantity) {
+        Integer shards = shardCounts.get(productId);
+        if (shards == null) {
+            return null;
+        }
+        int previous = shardRepository.merge(productId);
+        shardRepository.split(productId, quantity, shards);
+        return previous;
+    }
+
+    /**
+     * Takes the quantities out of stock: hot products from their shards, the others with the
+     * conditional batch on Product. Returns the ids that had too little stock; the caller must
+     * roll back when there are any. Must run inside the checkout's transaction.
+     */
+    public List<String> decrementStock(Map<String, Integer> quantities) {
+        holdUntilCompletion(modeLock.readLock());
+        Map<String, Integer> regular = new HashMap<>();
+        // Sorted, so checkouts that share hot products lock their shards in the same order
+        Map<String, Integer> hot = new TreeMap<>();
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            (shardCounts.containsKey(line.getKey()) ? hot : regular).put(line.getKey(), line.getValue());
+        }
+
+        List<String> failed = new ArrayList<>();
+        if (!regular.isEmpty()) {
+            failed.addAll(productRepository.decrementStock(regular));
+        }
+        for (Map.Entry<String, Integer> line : hot.entrySet()) {
+            Integer shards = shardCounts.get(line.getKey());
+            boolean taken = shards != null && shardRepository.decrementShard(
+                    line.getKey(), ThreadLocalRandom.current().nextInt(shards), line.getValue());
+            // The random shard ran low; the others may still cover the line together
+            if (!taken && !shardRepository.decrementAcrossShards(line.getKey(), line.getValue())) {
+                failed.add(line.getKey());
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Brings Product.quantity of hot products in line with their shards and publishes the new stock.
+     */
+    @Scheduled(fixedDelayString = "${aims.inventory.hot-reconcile-interval:PT5S}")
+    public void reconcile() {
+        if (shardCounts.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            holdUntilCompletion(modeLock.readLock());
+            List<String> changed = shardRepository.reconcile();
+            if (!changed.isEmpty()) {
+                for (ProductDTO product : productRepository.findAllWithDetailsById(changed)) {
+                    eventPublisher.publishEvent(ProductChangedEvent.updated(product));
+                }
+            }
+        });
+    }
+
+    private void setProductQuantity(String productId, int quantity) {
+        shardRepository.setProductQuantity(productId, quantity);
+        for (ProductDTO product : productRepository.findAllWithDetailsById(List.of(productId))) {
+            eventPublisher.publishEvent(ProductChangedEvent.updated(product));
+        }
+    }
+
+    private static void holdUntilCompletion(Lock lock) {
+        lock.lock();
+        try {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.unlock();
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    private static void afterRollback(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.aims.service.inventory;
+
+import com.example.aims.dto.InventoryBalanceDTO;
+import com.example.aims.dto.InventoryMovementDTO;
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.repository.InventoryLedgerRepository;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every stock movement in the inventory ledger, in the transaction that moved the stock.
+ * Movements are buffered per transaction and inserted as one batch right before commit.
+ * A background snapshotter rolls the ledger into per-product balances, so a balance is read as
+ * snapshot plus tail rather than by summing the product's whole history.
+ */
+@Service
+public class InventoryLedgerService {
+    private static final int DEFAULT_MOVEMENT_COUNT = 50;
+    private static final int MAX_MOVEMENT_COUNT = 1000;
+
+    public enum Reason { SALE, RESTOCK, ADJUSTMENT }
+
+    private final InventoryLedgerRepository ledgerRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public InventoryLedgerService(InventoryLedgerRepository ledgerRepository, PlatformTransactionManager transactionManager) {
+        this.ledgerRepository = ledgerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Adds a movement to the current transaction's batch. Zero deltas are not recorded.
+     */
+    public void record(String productId, int delta, Reason reason, String reference) {
+        if (delta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Stock movements must be recorded inside a transaction");
+        }
+        @SuppressWarnings("unchecked")
+        List<InventoryMovementDTO> pending = (List<InventoryMovementDTO>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<InventoryMovementDTO> buffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    ledgerRepository.appendAll(buffer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(InventoryLedgerService.this);
+                }
+            });
+            pending = buffer;
+        }
+        pending.add(new InventoryMovementDTO(0, productId, delta, reason.name(), reference, null));
+    }
+
+    /**
+     * Records a manager setting the stock: an increase is a restock, a decrease an adjustment.
+     */
+    public void recordQuantitySet(String productId, int previousQuantity, int newQuantity) {
+        int delta = newQuantity - previousQuantity;
+        record(productId, delta, delta > 0 ? Reason.RESTOCK : Reason.ADJUSTMENT, null);
+    }
+
+    public InventoryBalanceDTO getBalance(String productId) {
+        return ledgerRepository.findBalance(productId);
+    }
+
+    public List<InventoryMovementDTO> getMovements(String productId, Integer limit) {
+        int count = limit == null ? DEFAULT_MOVEMENT_COUNT : limit;
+        if (count <= 0 || count > MAX_MOVEMENT_COUNT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_MOVEMENT_COUNT);
+        }
+        return ledgerRepository.findRecent(productId, count);
+    }
+
+    /**
+     * Rolls finished movements into the per-product balances. Returns the number of balances updated,
+     * or -1 if another run was in progress.
+     */
+    @Scheduled(fixedDelayString = "${aims.inventory.snapshot-interval:PT1M}")
+    public int snapshot() {
+        Integer updated = transactionTemplate.execute(status -> ledgerRepository.snapshot());
+        return updated == null ? 0 : updated;
+    }
+}
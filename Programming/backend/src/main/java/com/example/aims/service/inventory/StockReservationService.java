@@ -0,0 +1,385 @@
+package com.example.aims.service.inventory;
+
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.repository.StockReservationRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Time-boxed stock holds per (customer, product). A hold is taken when a line enters a cart and
+ * refreshed whenever the line changes; until it expires, other customers cannot put the same units
+ * in their carts. Each product keeps the sum of its holds, so available-to-sell is
+ * {@code stock - reserved} without looking at any cart.
+ * <p>
+ * Expiry runs on a hashed timer wheel: a hold is filed under the slot of its deadline tick and every
+ * tick expires the whole slot at once. Changes reach the StockReservations table write-behind, in
+ * batches, and active holds are reloaded from it at startup. Like the cart store, this assumes a
+ * single application instance owns the holds.
+ */
+@Component
+public class StockReservationService {
+    private static final int WHEEL_SIZE = 512;
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final StockReservationRepository reservationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMillis;
+    private final long tickMillis;
+
+    // productID -> the holds on that product; an entry is dropped once its last hold goes
+    private final Map<String, ProductHolds> holds = new ConcurrentHashMap<>();
+    // customerID -> productIDs the customer holds; only changed under the product's lock
+    private final Map<String, Set<String>> heldByCustomer = new ConcurrentHashMap<>();
+    // Timer wheel; a slot may also hold keys due in a later revolution, or stale keys of refreshed holds
+    private final Set<Key>[] wheel;
+    // Last tick whose slot has been expired, guarded by the wheel's monitor
+    private long currentTick;
+    // Holds whose row in StockReservations is out of date
+    private final Set<Key> dirty = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private record Key(String customerId, String productId) {
+    }
+
+    private static class ProductHolds {
+        private final Map<String, Hold> byCustomer = new HashMap<>();
+        // Sum of the quantities in byCustomer, read without the lock
+        private volatile int reserved;
+    }
+
+    private static class Hold {
+        private final int quantity;
+        private final long expiresAt;
+        private final long deadlineTick;
+
+        private Hold(int quantity, long expiresAt, long deadlineTick) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public StockReservationService(StockReservationRepository reservationRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${aims.reservations.ttl:PT15M}") Duration ttl,
+                                   @Value("${aims.reservations.tick:PT1S}") Duration tick) {
+        this.reservationRepository = reservationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlMillis = ttl.toMillis();
+        this.tickMillis = tick.toMillis();
+        this.wheel = new Set[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        for (StockReservationRepository.Reservation reservation : reservationRepository.findActive(new Date())) {
+            withHolds(reservation.getProductID(), productHolds -> {
+                // Holds taken since startup are newer than the stored ones
+                if (!productHolds.byCustomer.containsKey(reservation.getCustomerID())) {
+                    put(productHolds, reservation.getCustomerID(), reservation.getProductID(),
+                            reservation.getQuantity(), reservation.getExpiresAt().getTime());
+                }
+            });
+        }
+    }
+
+    /**
+     * Units of the product nobody holds. O(1): the product's holds are summed as they change.
+     */
+    public int availableToSell(String productId, int stock) {
+        ProductHolds productHolds = holds.get(productId);
+        return productHolds == null ? stock : stock - productHolds.reserved;
+    }
+
+    /**
+     * Units the customer can hold in total: like {@link #availableToSell(String, int)}, but the
+     * customer's own hold counts as available.
+     */
+    public int availableToSell(String productId, int stock, String customerId) {
+        ProductHolds productHolds = holds.get(productId);
+        if (productHolds == null) {
+            return stock;
+        }
+        synchronized (productHolds) {
+            return available(productHolds, customerId, stock);
+        }
+    }
+
+    // Number of products with at least one hold
+    int heldProductCount() {
+        return holds.size();
+    }
+
+    /**
+     * Sets the customer's hold on the product to {@code quantity} and restarts its TTL.
+     * Fails without changing anything if other customers' holds leave less than that.
+     */
+    public void reserve(String customerId, String productId, int quantity, int stock) {
+        withHolds(productId, productHolds -> {
+            int available = available(productHolds, customerId, stock);
+            if (quantity > available) {
+                throw new BadRequestException("Not enough stock available. Available: " + Math.max(available, 0));
+            }
+            put(productHolds, customerId, productId, quantity, System.currentTimeMillis() + ttlMillis);
+        });
+    }
+
+    /**
+     * Reserves several products for one customer, all or nothing.
+     *
+     * @param quantities productID -> quantity to hold
+     * @param stock productID -> units in stock
+     */
+    public void reserveAll(String customerId, Map<String, Integer> quantities, Map<String, Integer> stock) {
+        Map<String, Hold> previous = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+                previous.put(line.getKey(), find(customerId, line.getKey()));
+                reserve(customerId, line.getKey(), line.getValue(), stock.get(line.getKey()));
+            }
+        } catch (RuntimeException e) {
+            previous.forEach((productId, hold) -> restore(customerId, productId, hold));
+            throw e;
+        }
+    }
+
+    public void release(String customerId, String productId) {
+        ProductHolds productHolds = holds.get(productId);
+        if (productHolds == null) {
+            return;
+        }
+        synchronized (productHolds) {
+            remove(productHolds, customerId, productId);
+        }
+    }
+
+    public void releaseAll(String customerId) {
+        Set<String> productIds = heldByCustomer.get(customerId);
+        if (productIds != null) {
+            for (String productId : new ArrayList<>(productIds)) {
+                release(customerId, productId);
+            }
+        }
+    }
+
+    /**
+     * Once the current transaction commits, drops the customer's holds on the given products,
+     * which the committed order has taken out of stock. Nothing changes on rollback.
+     */
+    public void releaseAfterCommit(String customerId, Collection<String> productIds) {
+        List<String> released = new ArrayList<>(productIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (String productId : released) {
+                    release(customerId, productId);
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.DELETED) {
+            return;
+        }
+        ProductHolds productHolds = holds.get(event.getProductId());
+        if (productHolds == null) {
+            return;
+        }
+        synchronized (productHolds) {
+            for (String customerId : new ArrayList<>(productHolds.byCustomer.keySet())) {
+                remove(productHolds, customerId, event.getProductId());
+            }
+        }
+    }
+
+    /**
+     * Expires every hold whose deadline has passed, slot by slot, then writes changed holds.
+     */
+    @Scheduled(fixedDelayString = "${aims.reservations.tick:PT1S}")
+    public void tick() {
+        advance(System.currentTimeMillis() / tickMillis);
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private synchronized void advance(long nowTick) {
+        // After a long pause every slot is due once; there is no point in sweeping the wheel twice
+        long from = Math.max(currentTick + 1, nowTick - WHEEL_SIZE + 1);
+        for (long tick = from; tick <= nowTick; tick++) {
+            int slot = (int) (tick % WHEEL_SIZE);
+            for (Key key : wheel[slot]) {
+                expire(key, slot, nowTick);
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    private void expire(Key key, int slot, long nowTick) {
+        ProductHolds productHolds = holds.get(key.productId());
+        if (productHolds == null) {
+            wheel[slot].remove(key);
+            return;
+        }
+        synchronized (productHolds) {
+            Hold hold = productHolds.byCustomer.get(key.customerId());
+            if (hold == null || hold.deadlineTick % WHEEL_SIZE != slot) {
+                // Released, or refreshed into another slot
+                wheel[slot].remove(key);
+            } else if (hold.deadlineTick <= nowTick) {
+                remove(productHolds, key.customerId(), key.productId());
+            }
+        }
+    }
+
+    private void flush() {
+        flushLock.lock();
+        try {
+            List<Key> keys = new ArrayList<>(dirty);
+            for (int from = 0; from < keys.size(); from += FLUSH_BATCH_SIZE) {
+                writeBatch(keys.subList(from, Math.min(from + FLUSH_BATCH_SIZE, keys.size())));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBatch(List<Key> keys) {
+        List<StockReservationRepository.Reservation> upserts = new ArrayList<>();
+        List<String[]> deletes = new ArrayList<>();
+        for (Key key : keys) {
+            // Cleared before reading the hold, so a change made after it marks the key dirty again
+            dirty.remove(key);
+            Hold hold = find(key.customerId(), key.productId());
+            if (hold == null) {
+                deletes.add(new String[]{key.customerId(), key.productId()});
+            } else {
+                upserts.add(new StockReservationRepository.Reservation(key.customerId(), key.productId(),
+                        hold.quantity, new Date(hold.expiresAt)));
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                reservationRepository.deleteAll(deletes);
+                reservationRepository.upsertAll(upserts);
+            });
+        } catch (RuntimeException e) {
+            // Retried on the next flush
+            dirty.addAll(keys);
+        }
+    }
+
+    private Hold find(String customerId, String productId) {
+        ProductHolds productHolds = holds.get(productId);
+        if (productHolds == null) {
+            return null;
+        }
+        synchronized (productHolds) {
+            return productHolds.byCustomer.get(customerId);
+        }
+    }
+
+    private void restore(String customerId, String productId, Hold hold) {
+        withHolds(productId, productHolds -> {
+            if (hold == null) {
+                remove(productHolds, customerId, productId);
+            } else {
+                put(productHolds, customerId, productId, hold.quantity, hold.expiresAt);
+            }
+        });
+    }
+
+    /**
+     * Runs the action under the lock of the product's holds, creating them if needed. Retries when
+     * the holds it locked were dropped meanwhile, so nothing is added to an entry no longer in the map.
+     */
+    private void withHolds(String productId, Consumer<ProductHolds> action) {
+        while (true) {
+            ProductHolds productHolds = holds.computeIfAbsent(productId, id -> new ProductHolds());
+            synchronized (productHolds) {
+                if (holds.get(productId) == productHolds) {
+                    action.accept(productHolds);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Callers hold the product's lock
+    private static int available(ProductHolds productHolds, String customerId, int stock) {
+        Hold own = productHolds.byCustomer.get(customerId);
+        return stock - productHolds.reserved + (own == null ? 0 : own.quantity);
+    }
+
+    // Callers hold the product's lock
+    private void put(ProductHolds productHolds, String customerId, String productId, int quantity, long expiresAt) {
+        long deadlineTick = (expiresAt + tickMillis - 1) / tickMillis;
+        Hold previous = productHolds.byCustomer.put(customerId, new Hold(quantity, expiresAt, deadlineTick));
+        productHolds.reserved += quantity - (previous == null ? 0 : previous.quantity);
+        heldByCustomer.compute(customerId, (id, productIds) -> {
+            Set<String> held = productIds != null ? productIds : ConcurrentHashMap.newKeySet();
+            held.add(productId);
+            return held;
+        });
+        Key key = new Key(customerId, productId);
+        if (previous != null && previous.deadlineTick % WHEEL_SIZE != deadlineTick % WHEEL_SIZE) {
+            wheel[(int) (previous.deadlineTick % WHEEL_SIZE)].remove(key);
+        }
+        wheel[(int) (deadlineTick % WHEEL_SIZE)].add(key);
+        dirty.add(key);
+    }
+
+    // Callers hold the product's lock
+    private void remove(ProductHolds productHolds, String customerId, String productId) {
+        Hold previous = productHolds.byCustomer.remove(customerId);
+        if (previous == null) {
+            return;
+        }
+        productHolds.reserved -= previous.quantity;
+        heldByCustomer.computeIfPresent(customerId, (id, productIds) -> {
+            productIds.remove(productId);
+            return productIds.isEmpty() ? null : productIds;
+        });
+        Key key = new Key(customerId, productId);
+        wheel[(int) (previous.deadlineTick % WHEEL_SIZE)].remove(key);
+        dirty.add(key);
+        if (productHolds.byCustomer.isEmpty()) {
+            holds.remove(productId, productHolds);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.aims.service.order;
+
+import com.example.aims.dto.DeliveryInfoDTO;
+import com.example.aims.dto.OrderDTO;
+import com.example.aims.dto.OrderItemDTO;
+import com.example.aims.model.Order;
+import com.example.aims.repository.DeliveryInfoRepository;
+import com.example.aims.repository.InvoiceRepository;
+import com.example.aims.repository.OrderItemRepository;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds OrderDTOs for a whole list of orders at once: items with their products, delivery infos
+ * and invoices are each loaded with one IN query per chunk of orders, then stitched together in memory.
+ * The queries select scalar columns, so none of the entities' eager associations are loaded per row.
+ */
+@Component
+public class OrderAssembler {
+    // Keeps each IN list to a bounded number of bind parameters
+    private static final int CHUNK_SIZE = 1000;
+
+    private final OrderItemRepository orderItemRepository;
+    private final DeliveryInfoRepository deliveryInfoRepository;
+    private final InvoiceRepository invoiceRepository;
+
+    public OrderAssembler(OrderItemRepository orderItemRepository, DeliveryInfoRepository deliveryInfoRepository,
+                          InvoiceRepository invoiceRepository) {
+        this.orderItemRepository = orderItemRepository;
+        this.deliveryInfoRepository = deliveryInfoRepository;
+        this.invoiceRepository = invoiceRepository;
+    }
+
+    public OrderDTO toDTO(Order order) {
+        return toDTOs(List.of(order)).get(0);
+    }
+
+    /**
+     * DTOs in the same order as {@code orders}.
+     */
+    public List<OrderDTO> toDTOs(List<Order> orders) {
+        List<OrderDTO> dtos = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            OrderDTO dto = new OrderDTO();
+            dto.setId(order.getId());
+            dto.setCustomerID(order.getCustomer().getId());
+            dto.setStatus(order.getStatus());
+            dto.setCreatedAt(order.getCreatedAt());
+            dto.setItems(new ArrayList<>());
+            dtos.add(dto);
+        }
+        return addDetails(dtos);
+    }
+
+    /**
+     * Fills in the items, delivery info and total of DTOs that only carry the order's own columns,
+     * such as the rows of an order page. Returns the same list.
+     */
+    public List<OrderDTO> addDetails(List<OrderDTO> dtos) {
+        Map<String, OrderDTO> byId = new HashMap<>();
+        for (OrderDTO dto : dtos) {
+            byId.put(dto.getId(), dto);
+        }
+
+        List<String> ids = new ArrayList<>(byId.keySet());
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            addItems(chunk, byId);
+            addDeliveryInfos(chunk, byId);
+            addTotals(chunk, byId);
+        }
+        return dtos;
+    }
+
+    private void addItems(List<String> orderIds, Map<String, OrderDTO> byId) {
+        for (Object[] row : orderItemRepository.findItemRowsByOrderIds(orderIds)) {
+            OrderItemDTO itemDTO = new OrderItemDTO();
+            itemDTO.setProductID((String) row[1]);
+            itemDTO.setProductTitle((String) row[2]);
+            itemDTO.setProductPrice((Double) row[3]);
+            itemDTO.setQuantity((Integer) row[4]);
+            byId.get((String) row[0]).getItems().add(itemDTO);
+        }
+    }
+
+    private void addDeliveryInfos(List<String> orderIds, Map<String, OrderDTO> byId) {
+        for (Object[] row : deliveryInfoRepository.findRowsByOrderIds(orderIds)) {
+            // DeliveryInfoDTO names the province the city and the street address the detail
+            DeliveryInfoDTO deliveryInfoDTO = new DeliveryInfoDTO();
+            deliveryInfoDTO.setAddressDetail((String) row[1]);
+            deliveryInfoDTO.setPhoneNumber((String) row[2]);
+            deliveryInfoDTO.setRecipientName((String) row[3]);
+            deliveryInfoDTO.setMail((String) row[4]);
+            deliveryInfoDTO.setCity((String) row[5]);
+            byId.get((String) row[0]).setDeliveryInfo(deliveryInfoDTO);
+        }
+    }
+
+    private void addTotals(List<String> orderIds, Map<String, OrderDTO> byId) {
+        for (Object[] row : invoiceRepository.findTotalsByOrderIds(orderIds)) {
+            byId.get((String) row[0]).setTotalPrice((Double) row[1] + (Double) row[2]);
+        }
+    }
+}
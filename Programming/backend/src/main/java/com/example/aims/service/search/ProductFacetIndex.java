@@ -0,0 +1,272 @@
+package com.example.aims.service.search;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.repository.ProductRepository;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facet engine for catalog browsing. Every product gets a small integer ordinal, and every
+ * (facet, value) pair keeps a bitmap of the ordinals that have it, so a filter combination is
+ * answered with bitmap ORs (values of one facet) and ANDs (across facets).
+ */
+@Component
+public class ProductFacetIndex {
+    public static final List<String> FACETS =
+            List.of("category", "genre", "language", "coverType", "musicType", "discType", "priceBand");
+
+    // Lower bounds of the price bands, in the store currency
+    private static final double[] PRICE_BAND_BOUNDS = {0, 100000, 300000, 500000};
+    private static final String[] PRICE_BAND_NAMES = {"0-100000", "100000-300000", "300000-500000", "500000+"};
+    private static final int LOAD_FETCH_SIZE = 500;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<String, Integer> ordinals = new HashMap<>();
+    private List<String> productIds = new ArrayList<>();
+    private Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    // ordinal -> facet values it was indexed under, needed to unindex a product
+    private Map<Integer, Map<String, String>> valuesByOrdinal = new HashMap<>();
+    private Map<String, Map<String, BitSet>> bitmaps = new HashMap<>();
+    private BitSet live = new BitSet();
+    private volatile boolean loaded;
+
+    public ProductFacetIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        List<ProductDTO> products = new ArrayList<>();
+        readOnlyTransaction.executeWithoutResult(status ->
+                productRepository.streamWithDetails(LOAD_FETCH_SIZE, products::add));
+        replaceAll(products);
+    }
+
+    @TransactionalEventListener
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            remove(event.getProductId());
+        } else {
+            index(event.getProduct());
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void replaceAll(Collection<ProductDTO> products) {
+        lock.writeLock().lock();
+        try {
+            ordinals = new HashMap<>();
+            productIds = new ArrayList<>(products.size());
+            freeOrdinals = new ArrayDeque<>();
+            valuesByOrdinal = new HashMap<>();
+            bitmaps = new HashMap<>();
+            live = new BitSet(products.size());
+            for (ProductDTO product : products) {
+                add(product);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(ProductDTO product) {
+        lock.writeLock().lock();
+        try {
+            unindex(product.getProductID());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the filters and counts facet values in one pass over the bitmaps.
+     * Counts for a facet ignore that facet's own filter, so the client can show alternatives.
+     *
+     * @param filters facet -> accepted values; values of one facet are OR-ed, facets are AND-ed
+     * @return the matching product ids (in ordinal order) and the facet counts
+     */
+    public Result query(Map<String, List<String>> filters) {
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> facetMatches = new HashMap<>();
+            for (Map.Entry<String, List<String>> filter : filters.entrySet()) {
+                if (filter.getValue() == null || filter.getValue().isEmpty()) {
+                    continue;
+                }
+                BitSet union = new BitSet();
+                Map<String, BitSet> values = bitmaps.getOrDefault(filter.getKey(), Map.of());
+                for (String value : filter.getValue()) {
+                    BitSet bitmap = values.get(value);
+                    if (bitmap != null) {
+                        union.or(bitmap);
+                    }
+                }
+                facetMatches.put(filter.getKey(), union);
+            }
+
+            BitSet matches = intersectAllExcept(facetMatches, null);
+            List<String> ids = new ArrayList<>(matches.cardinality());
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                ids.add(productIds.get(ordinal));
+            }
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (String facet : FACETS) {
+                BitSet base = facetMatches.containsKey(facet) ? intersectAllExcept(facetMatches, facet) : matches;
+                Map<String, Integer> valueCounts = new TreeMap<>();
+                for (Map.Entry<String, BitSet> value : bitmaps.getOrDefault(facet, Map.of()).entrySet()) {
+                    BitSet both = (BitSet) value.getValue().clone();
+                    both.and(base);
+                    int count = both.cardinality();
+                    if (count > 0) {
+                        valueCounts.put(value.getKey(), count);
+                    }
+                }
+                counts.put(facet, valueCounts);
+            }
+            return new Result(ids, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Answers one query over the given products without the live index, for use while it is still loading.
+     */
+    public static Result query(Collection<ProductDTO> products, Map<String, List<String>> filters) {
+        ProductFacetIndex oneOff = new ProductFacetIndex(null, null);
+        oneOff.replaceAll(products);
+        return oneOff.query(filters);
+    }
+
+    private BitSet intersectAllExcept(Map<String, BitSet> facetMatches, String excludedFacet) {
+        BitSet result = (BitSet) live.clone();
+        for (Map.Entry<String, BitSet> facet : facetMatches.entrySet()) {
+            if (!facet.getKey().equals(excludedFacet)) {
+                result.and(facet.getValue());
+            }
+        }
+        return result;
+    }
+
+    private void add(ProductDTO product) {
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = productIds.size();
+            productIds.add(product.getProductID());
+        } else {
+            ordinal = freeOrdinals.pop();
+            productIds.set(ordinal, product.getProductID());
+        }
+        ordinals.put(product.getProductID(), ordinal);
+        live.set(ordinal);
+
+        Map<String, String> values = facetValues(product);
+        valuesByOrdinal.put(ordinal, values);
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            bitmaps.computeIfAbsent(value.getKey(), key -> new HashMap<>())
+                    .computeIfAbsent(value.getValue(), key -> new BitSet())
+                    .set(ordinal);
+        }
+    }
+
+    private void unindex(String productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal == null) {
+            return;
+        }
+        live.clear(ordinal);
+        productIds.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+        for (Map.Entry<String, String> value : valuesByOrdinal.remove(ordinal).entrySet()) {
+            Map<String, BitSet> values = bitmaps.get(value.getKey());
+            BitSet bitmap = values.get(value.getValue());
+            bitmap.clear(ordinal);
+            if (bitmap.isEmpty()) {
+                values.remove(value.getValue());
+            }
+        }
+    }
+
+    private Map<String, String> facetValues(ProductDTO product) {
+        Map<String, String> values = new HashMap<>();
+        putIfPresent(values, "category", product.getCategory());
+        putIfPresent(values, "genre", product.getGenre());
+        putIfPresent(values, "language", product.getLanguage());
+        putIfPresent(values, "coverType", product.getCoverType());
+        putIfPresent(values, "musicType", product.getMusicType());
+        putIfPresent(values, "discType", product.getDiscType());
+        if (product.getPrice() != null) {
+            values.put("priceBand", priceBand(product.getPrice()));
+        }
+        return values;
+    }
+
+    private void putIfPresent(Map<String, String> values, String facet, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            values.put(facet, value.trim());
+        }
+    }
+
+    private String priceBand(double price) {
+        for (int i = PRICE_BAND_BOUNDS.length - 1; i > 0; i--) {
+            if (price >= PRICE_BAND_BOUNDS[i]) {
+                return PRICE_BAND_NAMES[i];
+            }
+        }
+        return PRICE_BAND_NAMES[0];
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Result {
+        private final List<String> productIds;
+        private final Map<String, Map<String, Integer>> counts;
+    }
+}
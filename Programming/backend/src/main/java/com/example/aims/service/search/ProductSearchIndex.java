@@ -0,0 +1,263 @@
+package com.example.aims.service.search;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.repository.ProductRepository;
+import com.example.aims.util.TextNormalizer;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product title, description, authors, artist and director.
+ * Text is lowercased and diacritic-folded, results are ranked with BM25,
+ * and the last query word also matches as a prefix so partial words still find products.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final int LOAD_FETCH_SIZE = 500;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Title words count more than words from the other fields
+    private static final int TITLE_WEIGHT = 3;
+    private static final int FIELD_WEIGHT = 1;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productID -> weighted term frequency), sorted for prefix lookups
+    private TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    // productID -> (term -> weighted term frequency), needed to unindex a product
+    private Map<String, Map<String, Integer>> documents = new HashMap<>();
+    private Map<String, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+    private volatile boolean loaded;
+
+    public ProductSearchIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reloads the index from the database. Changes committed meanwhile wait and are applied afterwards.
+     */
+    public synchronized void rebuild() {
+        List<ProductDTO> products = new ArrayList<>();
+        readOnlyTransaction.executeWithoutResult(status ->
+                productRepository.streamWithDetails(LOAD_FETCH_SIZE, products::add));
+        replaceAll(products);
+    }
+
+    @TransactionalEventListener
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            remove(event.getProductId());
+        } else {
+            index(event.getProduct());
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void replaceAll(Iterable<ProductDTO> products) {
+        lock.writeLock().lock();
+        try {
+            postings = new TreeMap<>();
+            documents = new HashMap<>();
+            documentLengths = new HashMap<>();
+            totalLength = 0;
+            for (ProductDTO product : products) {
+                add(product);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(ProductDTO product) {
+        lock.writeLock().lock();
+        try {
+            unindex(product.getProductID());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of matching products, best match first.
+     */
+    public List<String> search(String query) {
+        List<Hit> hits = rank(query);
+        List<String> ids = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            ids.add(hit.getProductId());
+        }
+        return ids;
+    }
+
+    /**
+     * Keyset page over the ranking of {@link #search(String)}, ordered by (score descending, id):
+     * returns up to {@code limit} hits strictly after ({@code afterScore}, {@code afterId}).
+     * Pass a null {@code afterId} for the first page.
+     */
+    public List<Hit> searchPage(String query, double afterScore, String afterId, int limit) {
+        List<Hit> page = new ArrayList<>(limit);
+        for (Hit hit : rank(query)) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (afterId == null || hit.score < afterScore
+                    || (hit.score == afterScore && hit.productId.compareTo(afterId) > 0)) {
+                page.add(hit);
+            }
+        }
+        return page;
+    }
+
+    private List<Hit> rank(String query) {
+        List<String> queryTerms = TextNormalizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            Map<String, Double> scores = new HashMap<>();
+
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                boolean last = i == queryTerms.size() - 1;
+                Map<String, Map<String, Integer>> matches = last
+                        ? postings.subMap(term, true, term + Character.MAX_VALUE, true)
+                        : exact(term);
+                for (Map<String, Integer> termPostings : matches.values()) {
+                    score(termPostings, documentCount, averageLength, scores);
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(scores.size());
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                hits.add(new Hit(entry.getKey(), entry.getValue()));
+            }
+            hits.sort(Comparator.comparingDouble(Hit::getScore).reversed().thenComparing(Hit::getProductId));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Map<String, Integer>> exact(String term) {
+        Map<String, Integer> termPostings = postings.get(term);
+        return termPostings == null ? Map.of() : Map.of(term, termPostings);
+    }
+
+    private void score(Map<String, Integer> termPostings, int documentCount, double averageLength,
+                       Map<String, Double> scores) {
+        int documentFrequency = termPostings.size();
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        for (Map.Entry<String, Integer> posting : termPostings.entrySet()) {
+            int frequency = posting.getValue();
+            int length = documentLengths.get(posting.getKey());
+            double norm = frequency + K1 * (1 - B + B * length / averageLength);
+            scores.merge(posting.getKey(), idf * frequency * (K1 + 1) / norm, Double::sum);
+        }
+    }
+
+    private void add(ProductDTO product) {
+        Map<String, Integer> terms = new HashMap<>();
+        addField(terms, product.getTitle(), TITLE_WEIGHT);
+        addField(terms, product.getDescription(), FIELD_WEIGHT);
+        addField(terms, product.getAuthors(), FIELD_WEIGHT);
+        addField(terms, product.getArtist(), FIELD_WEIGHT);
+        addField(terms, product.getDirector(), FIELD_WEIGHT);
+
+        int length = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>())
+                    .put(product.getProductID(), term.getValue());
+            length += term.getValue();
+        }
+        documents.put(product.getProductID(), terms);
+        documentLengths.put(product.getProductID(), length);
+        totalLength += length;
+    }
+
+    private void addField(Map<String, Integer> terms, String text, int weight) {
+        for (String token : TextNormalizer.tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void unindex(String productId) {
+        Map<String, Integer> terms = documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        totalLength -= documentLengths.remove(productId);
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            Map<String, Integer> termPostings = postings.get(term.getKey());
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term.getKey());
+                }
+            }
+        }
+    }
+
+    public static final class Hit {
+        private final String productId;
+        private final double score;
+
+        private Hit(String productId, double score) {
+            this.productId = productId;
+            this.score = score;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
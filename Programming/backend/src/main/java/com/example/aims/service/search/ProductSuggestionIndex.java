@@ -0,0 +1,329 @@
+package com.example.aims.service.search;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.SuggestionDTO;
+import com.example.aims.event.OrderPlacedEvent;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.repository.OrderItemRepository;
+import com.example.aims.repository.ProductRepository;
+import com.example.aims.util.TextNormalizer;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Prefix index for search-box autocomplete over product titles and author/artist names.
+ * Keys are normalized with {@link TextNormalizer} and kept in one sorted array, so a lookup is a
+ * binary search plus a scan of the matching range. Titles are also keyed from each inner word,
+ * so "potter" suggests "Harry Potter". Suggestions are ranked by units sold.
+ * <p>
+ * Writers replace only the entries of the product or name that changed and publish a new immutable
+ * array, so lookups never lock. Units sold are added from committed orders as they happen.
+ */
+@Component
+public class ProductSuggestionIndex {
+    private static final int LOAD_FETCH_SIZE = 500;
+    private static final Comparator<SuggestionDTO> BY_POPULARITY =
+            Comparator.comparingLong(SuggestionDTO::getPopularity).reversed()
+                    .thenComparing(SuggestionDTO::getText);
+    private static final Comparator<Entry> BY_KEY = Comparator.comparing(entry -> entry.key);
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Source data, guarded by this
+    private Map<String, ProductDTO> products = new HashMap<>();
+    private Map<String, Long> unitsSold = new HashMap<>();
+    // productID -> its title suggestion
+    private Map<String, SuggestionDTO> titles = new HashMap<>();
+    // "type:key" -> the name's suggestion, and the products whose authors/artist include it
+    private Map<String, SuggestionDTO> names = new HashMap<>();
+    private Map<String, Set<String>> nameProducts = new HashMap<>();
+
+    // Sorted by key and never modified once published; suggestions in it are never modified either
+    private volatile Entry[] entries;
+
+    public ProductSuggestionIndex(ProductRepository productRepository, OrderItemRepository orderItemRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        Map<String, ProductDTO> loadedProducts = new HashMap<>();
+        Map<String, Long> loadedUnitsSold = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            productRepository.streamWithDetails(LOAD_FETCH_SIZE,
+                    product -> loadedProducts.put(product.getProductID(), product));
+            for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+                loadedUnitsSold.put((String) row[0], ((Number) row[1]).longValue());
+            }
+        });
+        replaceAll(loadedProducts.values(), loadedUnitsSold);
+    }
+
+    @TransactionalEventListener
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (entries == null) {
+            return;
+        }
+        String id = event.getProductId();
+        ProductDTO previous = products.get(id);
+        ProductDTO product = event.getType() == ProductChangedEvent.Type.DELETED ? null : event.getProduct();
+        if (product == null) {
+            products.remove(id);
+        } else {
+            products.put(id, product);
+        }
+        // Stock and price updates, such as every checkout's, leave the suggestions as they are
+        if (previous != null && product != null && sameText(previous, product)) {
+            return;
+        }
+
+        Set<SuggestionDTO> removed = identitySet();
+        List<Entry> added = new ArrayList<>();
+        SuggestionDTO oldTitle = titles.remove(id);
+        if (oldTitle != null) {
+            removed.add(oldTitle);
+        }
+        if (product != null) {
+            addTitle(product, added);
+        }
+        Set<String> oldNames = previous == null ? Set.of() : nameKeys(previous).keySet();
+        Map<String, String> newNames = product == null ? Map.of() : nameKeys(product);
+        Set<String> touched = new HashSet<>(oldNames);
+        touched.addAll(newNames.keySet());
+        for (String name : touched) {
+            Set<String> ids = nameProducts.computeIfAbsent(name, key -> new HashSet<>());
+            if (newNames.containsKey(name)) {
+                ids.add(id);
+            } else {
+                ids.remove(id);
+            }
+            refreshName(name, newNames.get(name), removed, added);
+        }
+        publish(removed, added);
+    }
+
+    @TransactionalEventListener
+    public synchronized void onOrderPlaced(OrderPlacedEvent event) {
+        if (entries == null) {
+            return;
+        }
+        Set<SuggestionDTO> removed = identitySet();
+        List<Entry> added = new ArrayList<>();
+        Set<String> touchedNames = new HashSet<>();
+        for (Map.Entry<String, Integer> line : event.getQuantities().entrySet()) {
+            unitsSold.merge(line.getKey(), line.getValue().longValue(), Long::sum);
+            ProductDTO product = products.get(line.getKey());
+            if (product == null) {
+                continue;
+            }
+            SuggestionDTO oldTitle = titles.remove(line.getKey());
+            if (oldTitle != null) {
+                removed.add(oldTitle);
+            }
+            addTitle(product, added);
+            touchedNames.addAll(nameKeys(product).keySet());
+        }
+        for (String name : touchedNames) {
+            refreshName(name, null, removed, added);
+        }
+        publish(removed, added);
+    }
+
+    public synchronized void replaceAll(Iterable<ProductDTO> allProducts, Map<String, Long> allUnitsSold) {
+        products = new HashMap<>();
+        unitsSold = new HashMap<>(allUnitsSold);
+        titles = new HashMap<>();
+        names = new HashMap<>();
+        nameProducts = new HashMap<>();
+        Map<String, String> nameTexts = new HashMap<>();
+
+        List<Entry> built = new ArrayList<>();
+        for (ProductDTO product : allProducts) {
+            products.put(product.getProductID(), product);
+            addTitle(product, built);
+            for (Map.Entry<String, String> name : nameKeys(product).entrySet()) {
+                nameProducts.computeIfAbsent(name.getKey(), key -> new HashSet<>()).add(product.getProductID());
+                nameTexts.putIfAbsent(name.getKey(), name.getValue());
+            }
+        }
+        for (Map.Entry<String, String> name : nameTexts.entrySet()) {
+            refreshName(name.getKey(), name.getValue(), identitySet(), built);
+        }
+        built.sort(BY_KEY);
+        entries = built.toArray(new Entry[0]);
+    }
+
+    public boolean isLoaded() {
+        return entries != null;
+    }
+
+    /**
+     * Returns up to {@code limit} suggestions whose normalized text, or a word inside a title,
+     * starts with the normalized prefix, most popular first.
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = String.join(" ", TextNormalizer.tokenize(prefix));
+        Entry[] current = entries;
+        if (key.isEmpty() || current == null) {
+            return List.of();
+        }
+
+        // Same suggestion can be reached through several keys, keep it once
+        Set<SuggestionDTO> matches = identitySet();
+        for (int i = lowerBound(current, key); i < current.length && current[i].key.startsWith(key); i++) {
+            matches.add(current[i].suggestion);
+        }
+        List<SuggestionDTO> ranked = new ArrayList<>(matches);
+        ranked.sort(BY_POPULARITY);
+        List<SuggestionDTO> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (SuggestionDTO suggestion : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            // Copies, so callers cannot change the published suggestions
+            result.add(new SuggestionDTO(suggestion.getText(), suggestion.getType(),
+                    suggestion.getProductID(), suggestion.getPopularity()));
+        }
+        return result;
+    }
+
+    private void addTitle(ProductDTO product, List<Entry> added) {
+        List<String> titleTokens = TextNormalizer.tokenize(product.getTitle());
+        if (titleTokens.isEmpty()) {
+            return;
+        }
+        long sold = unitsSold.getOrDefault(product.getProductID(), 0L);
+        SuggestionDTO title = new SuggestionDTO(product.getTitle(), "title", product.getProductID(), sold);
+        titles.put(product.getProductID(), title);
+        for (int start = 0; start < titleTokens.size(); start++) {
+            added.add(new Entry(String.join(" ", titleTokens.subList(start, titleTokens.size())), title));
+        }
+    }
+
+    /**
+     * Replaces the suggestion of a name with one summing the units sold of its current products,
+     * or drops it once no product has the name any more. {@code text} is used for a new name.
+     */
+    private void refreshName(String name, String text, Set<SuggestionDTO> removed, List<Entry> added) {
+        SuggestionDTO old = names.remove(name);
+        if (old != null) {
+            removed.add(old);
+            text = old.getText();
+        }
+        Set<String> ids = nameProducts.get(name);
+        if (ids == null || ids.isEmpty()) {
+            nameProducts.remove(name);
+            return;
+        }
+        long sold = 0;
+        for (String id : ids) {
+            sold += unitsSold.getOrDefault(id, 0L);
+        }
+        int separator = name.indexOf(':');
+        SuggestionDTO suggestion = new SuggestionDTO(text, name.substring(0, separator), null, sold);
+        names.put(name, suggestion);
+        added.add(new Entry(name.substring(separator + 1), suggestion));
+    }
+
+    /**
+     * Publishes a new array without the entries of {@code removed} suggestions and with {@code added}
+     * merged in, in one pass over the current array.
+     */
+    private void publish(Set<SuggestionDTO> removed, List<Entry> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        added.sort(BY_KEY);
+        Entry[] current = entries;
+        List<Entry> merged = new ArrayList<>(current.length + added.size());
+        int next = 0;
+        for (Entry entry : current) {
+            if (removed.contains(entry.suggestion)) {
+                continue;
+            }
+            while (next < added.size() && BY_KEY.compare(added.get(next), entry) < 0) {
+                merged.add(added.get(next++));
+            }
+            merged.add(entry);
+        }
+        merged.addAll(added.subList(next, added.size()));
+        entries = merged.toArray(new Entry[0]);
+    }
+
+    // "type:key" -> display text of each author/artist name of the product
+    private static Map<String, String> nameKeys(ProductDTO product) {
+        Map<String, String> keys = new HashMap<>();
+        addNames(keys, product.getAuthors(), "author");
+        addNames(keys, product.getArtist(), "artist");
+        return keys;
+    }
+
+    private static void addNames(Map<String, String> keys, String field, String type) {
+        if (field == null) {
+            return;
+        }
+        // Book.authors may hold several names
+        for (String name : field.split("[,;&]")) {
+            String key = String.join(" ", TextNormalizer.tokenize(name));
+            if (!key.isEmpty()) {
+                keys.putIfAbsent(type + ":" + key, name.trim());
+            }
+        }
+    }
+
+    private static boolean sameText(ProductDTO a, ProductDTO b) {
+        return Objects.equals(a.getTitle(), b.getTitle()) && Objects.equals(a.getAuthors(), b.getAuthors())
+                && Objects.equals(a.getArtist(), b.getArtist());
+    }
+
+    private static Set<SuggestionDTO> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private static int lowerBound(Entry[] sorted, String key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].key.compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final SuggestionDTO suggestion;
+
+        private Entry(String key, SuggestionDTO suggestion) {
+            this.key = key;
+            this.suggestion = suggestion;
+        }
+    }
+}
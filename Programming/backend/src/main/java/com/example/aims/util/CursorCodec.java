@@ -0,0 +1,53 @@
+package com.example.aims.util;
+
+import com.example.aims.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Utility class for encoding keyset pagination cursors.
+ * A cursor holds the sort value and the id of the last row of a page, and is opaque to clients.
+ */
+public class CursorCodec {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * Encodes the position of the last row of a page
+     * 
+     * @param sortValue The sort value of the last row
+     * @param id The id of the last row
+     * @return An opaque cursor token
+     */
+    public static String encode(String sortValue, String id) {
+        return encodePart(sortValue) + "." + encodePart(id);
+    }
+
+    /**
+     * Decodes a cursor created by {@link #encode(String, String)}
+     * 
+     * @param cursor The cursor token
+     * @return A two-element array holding the sort value and the id
+     */
+    public static String[] decode(String cursor) {
+        String[] parts = cursor.split("\\.", -1);
+        if (parts.length != 2) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        return new String[] { decodePart(parts[0]), decodePart(parts[1]) };
+    }
+
+    private static String encodePart(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePart(String value) {
+        try {
+            return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.aims.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for normalizing free text before indexing or matching
+ */
+public class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Lowercases the text and folds diacritics, so "Đắc Nhân Tâm" becomes "dac nhan tam"
+     * 
+     * @param text The text to normalize, may be null
+     * @return The normalized text, empty for null input
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        // đ has no decomposition, so it is folded explicitly
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").replace('đ', 'd');
+    }
+
+    /**
+     * Normalizes the text and splits it into words
+     * 
+     * @param text The text to tokenize, may be null
+     * @return The normalized tokens in order of appearance
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
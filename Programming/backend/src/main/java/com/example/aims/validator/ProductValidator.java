@@ -22,11 +22,30 @@ public class ProductValidator {
         }
     }
 
-    public void validateProductUpdate(String id, ProductDTO productDTO) {
-        if (!productRepository.existsById(id)) {
-            throw new BadRequestException("Product not found with id: " + id);
+    /**
+     * Checks the fields a product cannot be stored without, and that no amount is negative.
+     */
+    public void validateProductFields(ProductDTO productDTO) {
+        String category = productDTO.getCategory() == null ? null : productDTO.getCategory().toLowerCase();
+        if (!"book".equals(category) && !"cd".equals(category) && !"dvd".equals(category)) {
+            throw new BadRequestException("Invalid category: " + productDTO.getCategory());
         }
+        if (productDTO.getTitle() == null || productDTO.getTitle().trim().isEmpty()) {
+            throw new BadRequestException("Title is required");
+        }
+        if (productDTO.getPrice() == null) {
+            throw new BadRequestException("Price is required");
+        }
+        if (productDTO.getPrice() < 0 || (productDTO.getValue() != null && productDTO.getValue() < 0)
+                || (productDTO.getQuantity() != null && productDTO.getQuantity() < 0)) {
+            throw new BadRequestException("Price, quantity and value cannot be negative");
+        }
+    }
 
+    /**
+     * Existence is not checked here: the update loads the product anyway and reports a missing one.
+     */
+    public void validateProductUpdate(ProductDTO productDTO) {
         String category = productDTO.getCategory().toLowerCase();
         if (!category.equals("book") && !category.equals("cd") && !category.equals("dvd")) {
             throw new BadRequestException("Invalid category: " + category);
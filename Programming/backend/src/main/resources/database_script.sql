@@ -11,7 +11,12 @@ CREATE TABLE Product (
     warehouseEntryDate DATE,
     dimensions VARCHAR,
     weight DOUBLE,
-    imageURL VARCHAR
+    imageURL VARCHAR,
+    -- Phiên bản cho khóa lạc quan (optimistic locking)
+    version BIGINT NOT NULL DEFAULT 0,
+    -- Xóa mềm: sản phẩm bị xóa vẫn giữ lại cho lịch sử đơn hàng cho tới khi được dọn dẹp
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    deletedAt TIMESTAMP
 );
 
 -- Bảng Book kế thừa Product
@@ -72,11 +77,30 @@ CREATE TABLE CartItems (
     PRIMARY KEY (customerID, productID)
 );
 
+-- Bảng StockReservations (giữ hàng tạm thời cho giỏ hàng, hết hạn sau expiresAt)
+CREATE TABLE StockReservations (
+    customerID VARCHAR REFERENCES "user"(id),
+    productID VARCHAR REFERENCES Product(productID),
+    quantity INT NOT NULL,
+    expiresAt TIMESTAMP NOT NULL,
+    PRIMARY KEY (customerID, productID)
+);
+
+-- Bảng ProductStockShards (tồn kho của sản phẩm "hot" được chia thành nhiều dòng đếm để giảm tranh chấp khóa)
+CREATE TABLE ProductStockShards (
+    productID VARCHAR REFERENCES Product(productID),
+    shard INT NOT NULL,
+    quantity INT NOT NULL CHECK (quantity >= 0),
+    PRIMARY KEY (productID, shard)
+);
+
 -- Bảng Order
 CREATE TABLE OrderAccount (
     id VARCHAR PRIMARY KEY,
     customerID VARCHAR REFERENCES "user"(id),
-    status VARCHAR
+    status VARCHAR,
+    -- Độ chính xác mili giây, khớp với con trỏ phân trang
+    createdAt TIMESTAMP(3) NOT NULL DEFAULT now()
 );
 
 -- Bảng OrderItems
@@ -111,3 +135,53 @@ CREATE TABLE Invoice (
     productPriceIncludingVAT DOUBLE,
     deliveryFee DOUBLE
 );
+
+-- Chỉ mục cho phân trang keyset trên Product (title/price, productID), chỉ gồm sản phẩm chưa bị xóa
+CREATE INDEX idx_product_title_id ON Product (title, productID) WHERE deleted = FALSE;
+CREATE INDEX idx_product_price_id ON Product (price, productID) WHERE deleted = FALSE;
+CREATE INDEX idx_product_category_title_id ON Product (category, title, productID) WHERE deleted = FALSE;
+CREATE INDEX idx_product_category_price_id ON Product (category, price, productID) WHERE deleted = FALSE;
+
+-- Chỉ mục cho tiến trình dọn dẹp sản phẩm đã xóa mềm
+CREATE INDEX idx_product_tombstones ON Product (deletedAt) WHERE deleted = TRUE;
+
+-- Chỉ mục cho phân trang keyset đơn hàng (mới nhất trước): theo trạng thái, theo khách hàng và tất cả đơn hàng
+CREATE INDEX idx_order_status_created_id ON OrderAccount (status, createdAt, id);
+CREATE INDEX idx_order_customer_created_id ON OrderAccount (customerID, createdAt, id);
+CREATE INDEX idx_order_created_id ON OrderAccount (createdAt, id);
+
+-- Nhật ký thay đổi sản phẩm (chỉ ghi thêm); txid là giao dịch đã ghi dòng đó, được đọc theo thứ tự (txid, seq)
+CREATE TABLE ProductChangeLog (
+    seq BIGSERIAL PRIMARY KEY,
+    productID VARCHAR NOT NULL,
+    changeType VARCHAR NOT NULL,
+    changedAt TIMESTAMP NOT NULL DEFAULT now(),
+    payload VARCHAR,
+    txid XID8 NOT NULL DEFAULT pg_current_xact_id()
+);
+CREATE INDEX idx_product_change_log_txid_seq ON ProductChangeLog (txid, seq);
+
+-- Sổ cái tồn kho (chỉ ghi thêm): mỗi dòng là một biến động tồn kho; txid là giao dịch đã ghi dòng đó
+CREATE TABLE InventoryLedger (
+    seq BIGSERIAL PRIMARY KEY,
+    productID VARCHAR NOT NULL,
+    delta INT NOT NULL,
+    reason VARCHAR NOT NULL,
+    reference VARCHAR,
+    recordedAt TIMESTAMP NOT NULL DEFAULT now(),
+    txid XID8 NOT NULL DEFAULT pg_current_xact_id()
+);
+CREATE INDEX idx_inventory_ledger_product_txid ON InventoryLedger (productID, txid);
+CREATE INDEX idx_inventory_ledger_txid ON InventoryLedger (txid);
+
+-- Số dư tồn kho đã tổng hợp từ sổ cái, gồm mọi biến động của các giao dịch trước horizon
+CREATE TABLE InventorySnapshot (
+    productID VARCHAR PRIMARY KEY,
+    balance INT NOT NULL,
+    horizon XID8 NOT NULL,
+    takenAt TIMESTAMP NOT NULL
+);
+
+-- Số dư mở đầu cho các sản phẩm đã có trước khi dùng sổ cái
+INSERT INTO InventoryLedger (productID, delta, reason)
+SELECT productID, quantity, 'ADJUSTMENT' FROM Product WHERE quantity <> 0;
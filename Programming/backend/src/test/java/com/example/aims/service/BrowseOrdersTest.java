@@ -0,0 +1,82 @@
+package com.example.aims.service;
+
+import com.example.aims.dto.OrderDTO;
+import com.example.aims.dto.OrderPageDTO;
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.repository.OrderRepository;
+import com.example.aims.service.order.OrderAssembler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BrowseOrdersTest {
+
+    @InjectMocks
+    private OrderService orderService;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderAssembler orderAssembler;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(orderAssembler.addDetails(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private static OrderDTO order(String id, long createdAt) {
+        OrderDTO order = new OrderDTO();
+        order.setId(id);
+        order.setStatus("PENDING");
+        order.setCreatedAt(new Date(createdAt));
+        return order;
+    }
+
+    // The cursor of a page leads to the rows strictly after its last order
+    @Test
+    void testGetOrderPage_CursorRoundTrip() {
+        when(orderRepository.findPage(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(order("c", 3000), order("b", 2000), order("a", 1000)));
+
+        OrderPageDTO first = orderService.getOrderPage("ALL", null, null, null, null, 2);
+        assertEquals(2, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+
+        when(orderRepository.findPage(isNull(), isNull(), isNull(), isNull(), eq(new Date(2000)), eq("b"), eq(3)))
+                .thenReturn(List.of(order("a", 1000)));
+
+        OrderPageDTO second = orderService.getOrderPage(null, null, null, null, first.getNextCursor(), 2);
+        assertEquals(1, second.getItems().size());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testGetOrderPage_StatusFilterPassedThrough() {
+        when(orderRepository.findPage(eq("APPROVED"), eq("u1"), isNull(), isNull(), isNull(), isNull(), eq(51)))
+                .thenReturn(List.of());
+
+        OrderPageDTO page = orderService.getOrderPage("APPROVED", "u1", null, null, null, null);
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetOrderPage_InvalidInput_ThrowsBadRequest() {
+        assertThrows(BadRequestException.class,
+                () -> orderService.getOrderPage(null, null, null, null, null, 0));
+        assertThrows(BadRequestException.class,
+                () -> orderService.getOrderPage(null, null, new Date(2000), new Date(1000), null, null));
+        assertThrows(BadRequestException.class,
+                () -> orderService.getOrderPage(null, null, null, null, "not-a-cursor", null));
+    }
+}
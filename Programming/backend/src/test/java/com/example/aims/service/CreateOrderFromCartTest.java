@@ -0,0 +1,104 @@
+package com.example.aims.service;
+
+import com.example.aims.dto.DeliveryInfoDTO;
+import com.example.aims.model.Book;
+import com.example.aims.model.Product;
+import com.example.aims.model.Users;
+import com.example.aims.repository.*;
+import com.example.aims.service.cart.CartStore;
+import com.example.aims.service.inventory.HotStockService;
+import com.example.aims.service.inventory.InventoryLedgerService;
+import com.example.aims.service.inventory.StockReservationService;
+import com.example.aims.service.order.OrderAssembler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CreateOrderFromCartTest {
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final DeliveryInfoRepository deliveryInfoRepository = mock(DeliveryInfoRepository.class);
+    private final PaymentTransactionRepository paymentTransactionRepository = mock(PaymentTransactionRepository.class);
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private final UsersRepository usersRepository = mock(UsersRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CartStore cartStore = mock(CartStore.class);
+    private final InventoryLedgerService inventoryLedger = mock(InventoryLedgerService.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private OrderService orderService;
+
+    @BeforeEach
+    public void setUp() {
+        // The decrement goes through the real conditional batch, against a mocked JDBC template
+        NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        when(namedJdbcTemplate.getJdbcTemplate()).thenReturn(jdbcTemplate);
+        ProductRepositoryImpl decrements = new ProductRepositoryImpl(namedJdbcTemplate);
+        when(productRepository.decrementStock(anyMap()))
+                .thenAnswer(invocation -> decrements.decrementStock(invocation.getArgument(0)));
+
+        HotStockService hotStockService = new HotStockService(mock(ProductStockShardRepository.class),
+                productRepository, mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class));
+        orderService = new OrderService(orderRepository, orderItemRepository, deliveryInfoRepository,
+                paymentTransactionRepository, invoiceRepository, usersRepository, productRepository, cartStore,
+                mock(StockReservationService.class), hotStockService, inventoryLedger, mock(OrderAssembler.class),
+                mock(ApplicationEventPublisher.class));
+        // Stands in for the checkout transaction
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void testLineNotDecrementedFailsOrderBeforeAnythingIsSaved() {
+        Map<String, Integer> cart = new LinkedHashMap<>();
+        cart.put("p3", 1);
+        cart.put("p1", 2);
+        cart.put("p2", 5);
+        when(usersRepository.findById("c1")).thenReturn(Optional.of(new Users()));
+        when(cartStore.getItems("c1")).thenReturn(cart);
+        when(productRepository.findAllById(any())).thenReturn(List.of(
+                createProduct("p1"), createProduct("p2"), createProduct("p3")));
+        // A concurrent checkout emptied p2 after its stock was read
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class))).thenReturn(new int[]{1, 0, 1});
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> orderService.createOrderFromCart("c1", new DeliveryInfoDTO()));
+
+        assertEquals("Not enough stock for products: p2", ex.getMessage());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture(), any(int[].class));
+        // Sorted by product id, so overlapping checkouts lock their rows in the same order
+        assertEquals(List.of("p1", "p2", "p3"), rows.getValue().stream().map(row -> row[1]).toList());
+        verifyNoInteractions(orderRepository, orderItemRepository, deliveryInfoRepository,
+                paymentTransactionRepository, invoiceRepository, inventoryLedger);
+    }
+
+    private Product createProduct(String id) {
+        Book product = new Book();
+        product.setProductID(id);
+        product.setPrice(10000.0);
+        product.setQuantity(5);
+        return product;
+    }
+}
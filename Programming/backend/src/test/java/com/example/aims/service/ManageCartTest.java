@@ -1,28 +1,38 @@
-
 package com.example.aims.service;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 
 import com.example.aims.dto.CartItemDTO;
-import com.example.aims.model.CartItem;
-import com.example.aims.model.Product;
-import com.example.aims.model.Users;
+import com.example.aims.dto.CartOperationDTO;
+import com.example.aims.dto.ProductDTO;
 import com.example.aims.repository.CartItemRepository;
 import com.example.aims.repository.ProductRepository;
+import com.example.aims.repository.StockReservationRepository;
 import com.example.aims.repository.UsersRepository;
 import com.example.aims.exception.BadRequestException;
 import com.example.aims.exception.ResourceNotFoundException;
+import com.example.aims.service.cart.CartStore;
+import com.example.aims.service.catalog.ProductCatalog;
+import com.example.aims.service.inventory.StockReservationService;
+
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 @ExtendWith(MockitoExtension.class)
 public class ManageCartTest {
@@ -36,10 +46,24 @@ public class ManageCartTest {
     @Mock
     private CartItemRepository cartItemRepository;
 
-    @InjectMocks
-    private  CartService cartService;
+    @Mock
+    private ProductCatalog productCatalog;
 
+    private CartStore cartStore;
 
+    private StockReservationService stockReservations;
+
+    private  CartService cartService;
+
+    @BeforeEach
+    public void setUp() {
+        cartStore = new CartStore(cartItemRepository, usersRepository,
+                mock(PlatformTransactionManager.class), Duration.ofMinutes(30));
+        stockReservations = new StockReservationService(mock(StockReservationRepository.class),
+                mock(PlatformTransactionManager.class), Duration.ofMinutes(15), Duration.ofSeconds(1));
+        cartService = new CartService(cartStore, productCatalog, productRepository, cartItemRepository, usersRepository,
+                stockReservations);
+    }
 
     @Test
     public void test_add_new_product_to_cart_successfully() {
@@ -48,23 +72,42 @@ public class ManageCartTest {
         String productId = "product456";
         Integer quantity = 2;
 
-        Users mockCustomer = createMockUser(customerId);
-        Product mockProduct = createMockProduct(productId);
+        ProductDTO mockProduct = createMockProduct(productId);
 
-        when(usersRepository.findById(customerId)).thenReturn(Optional.of(mockCustomer));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(mockProduct));
-        when(cartItemRepository.findById(any(CartItem.CartItemId.class))).thenReturn(Optional.empty());
+        when(usersRepository.existsById(customerId)).thenReturn(true);
+        when(productCatalog.isLoaded()).thenReturn(true);
+        when(productCatalog.findById(productId)).thenReturn(Optional.of(mockProduct));
 
         // Act
         CartItemDTO result = cartService.addToCart(customerId, productId, quantity);
 
         // Assert
-        verify(cartItemRepository).save(any(CartItem.class));
+        assertEquals(Map.of(productId, 2), cartStore.getItems(customerId));
         assertEquals(productId, result.getProductID());
         assertEquals("Test Product", result.getProductTitle());
         assertEquals(19.99, result.getProductPrice());
         assertEquals(2, result.getQuantity());
         assertEquals("http://example.com/image.jpg", result.getImageURL());
+        // Nothing is written until the store flushes
+        verify(cartItemRepository, never()).replaceCarts(anyMap());
+    }
+
+    @Test
+    public void test_get_cart_not_in_memory_reads_joined_rows() {
+        // Arrange
+        String customerId = "customer123";
+        CartItemDTO item = new CartItemDTO("product456", "Test Product", 19.99, 2, "http://example.com/image.jpg");
+
+        when(cartItemRepository.findCartItemDTOsByCustomerId(customerId)).thenReturn(List.of(item));
+
+        // Act
+        List<CartItemDTO> result = cartService.getCartItems(customerId);
+
+        // Assert
+        assertEquals(List.of(item), result);
+        assertFalse(cartStore.isResident(customerId));
+        verifyNoInteractions(usersRepository);
+        verifyNoInteractions(productCatalog);
     }
 
     @Test
@@ -94,23 +137,20 @@ public class ManageCartTest {
         String productId = "product456";
         int newQuantity = 3;
 
-        Product mockProduct = createMockProduct(productId);
+        ProductDTO mockProduct = createMockProduct(productId);
         mockProduct.setQuantity(10); // Có hàng
 
-        CartItem.CartItemId cartItemId = new CartItem.CartItemId(customerId, productId);
-        CartItem cartItem = new CartItem();
-        cartItem.setId(cartItemId);
-        cartItem.setQuantity(1); // Giả sử ban đầu là 1
-
-        when(productRepository.findById(productId)).thenReturn(Optional.of(mockProduct));
-        when(cartItemRepository.findById(cartItemId)).thenReturn(Optional.of(cartItem));
-        when(cartItemRepository.save(any(CartItem.class))).thenReturn(cartItem);
+        // Giả sử ban đầu là 1
+        when(cartItemRepository.findQuantitiesByCustomerId(customerId))
+                .thenReturn(List.<Object[]>of(new Object[]{productId, 1}));
+        when(productCatalog.isLoaded()).thenReturn(true);
+        when(productCatalog.findById(productId)).thenReturn(Optional.of(mockProduct));
 
         // Act
         CartItemDTO result = cartService.updateCartItem(customerId, productId, newQuantity);
 
         // Assert
-        verify(cartItemRepository).save(cartItem);
+        assertEquals(Map.of(productId, newQuantity), cartStore.getItems(customerId));
         assertEquals(productId, result.getProductID());
         assertEquals(newQuantity, result.getQuantity());
         assertEquals("Test Product", result.getProductTitle());
@@ -118,6 +158,25 @@ public class ManageCartTest {
         assertEquals("http://example.com/image.jpg", result.getImageURL());
     }
 
+    @Test
+    public void test_add_to_cart_units_held_by_other_carts_are_not_available() {
+        // Arrange
+        String productId = "product456";
+
+        ProductDTO mockProduct = createMockProduct(productId);
+
+        when(productCatalog.isLoaded()).thenReturn(true);
+        when(productCatalog.findById(productId)).thenReturn(Optional.of(mockProduct));
+        stockReservations.reserve("otherCustomer", productId, 7, 10);
+
+        // Act & Assert
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> {
+            cartService.addToCart("customer123", productId, 4);
+        });
+
+        assertEquals("Not enough stock available. Available: 3", ex.getMessage());
+    }
+
     @Test
     public void test_update_cart_item_insufficient_stock_throws_exception() {
         // Arrange
@@ -125,14 +184,11 @@ public class ManageCartTest {
         String productId = "product456";
         int newQuantity = 15;
 
-        Product mockProduct = createMockProduct(productId);
+        ProductDTO mockProduct = createMockProduct(productId);
         mockProduct.setQuantity(10); // Không đủ hàng
 
-        CartItem.CartItemId cartItemId = new CartItem.CartItemId(customerId, productId);
-        CartItem cartItem = new CartItem();
-        cartItem.setId(cartItemId);
-
-        when(productRepository.findById(productId)).thenReturn(Optional.of(mockProduct));
+        when(productCatalog.isLoaded()).thenReturn(true);
+        when(productCatalog.findById(productId)).thenReturn(Optional.of(mockProduct));
 
         // Act & Assert
         BadRequestException ex = assertThrows(BadRequestException.class, () -> {
@@ -147,15 +203,17 @@ public class ManageCartTest {
         // Arrange
         String customerId = "customer123";
         String productId = "product456";
-        CartItem.CartItemId cartItemId = new CartItem.CartItemId(customerId, productId);
 
-        when(cartItemRepository.existsById(cartItemId)).thenReturn(true);
+        when(cartItemRepository.findQuantitiesByCustomerId(customerId))
+                .thenReturn(List.<Object[]>of(new Object[]{productId, 1}));
 
         // Act
         cartService.removeFromCart(customerId, productId);
+        cartStore.flush();
 
         // Assert
-        verify(cartItemRepository).deleteById(cartItemId);
+        assertTrue(cartStore.getItems(customerId).isEmpty());
+        verify(cartItemRepository).replaceCarts(Map.of(customerId, Map.of()));
     }
 
     @Test
@@ -163,9 +221,8 @@ public class ManageCartTest {
         // Arrange
         String customerId = "customer123";
         String productId = "product456";
-        CartItem.CartItemId cartItemId = new CartItem.CartItemId(customerId, productId);
 
-        when(cartItemRepository.existsById(cartItemId)).thenReturn(false);
+        when(usersRepository.existsById(customerId)).thenReturn(true);
 
         // Act & Assert
         ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class, () -> {
@@ -175,16 +232,91 @@ public class ManageCartTest {
         assertEquals("Cart item not found", ex.getMessage());
     }
 
+    @Test
+    public void test_units_held_by_another_cart_cannot_be_added() {
+        // Arrange
+        ProductDTO mockProduct = createMockProduct("product456");
+        mockProduct.setQuantity(3);
+
+        when(usersRepository.existsById(anyString())).thenReturn(true);
+        when(productCatalog.isLoaded()).thenReturn(true);
+        when(productCatalog.findById("product456")).thenReturn(Optional.of(mockProduct));
+
+        cartService.addToCart("customer1", "product456", 2);
+
+        // Act & Assert
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> {
+            cartService.addToCart("customer2", "product456", 2);
+        });
+        assertEquals("Not enough stock available. Available: 1", ex.getMessage());
+        assertTrue(cartStore.getItems("customer2").isEmpty());
+
+        // Removing the line gives the units back
+        cartService.removeFromCart("customer1", "product456");
+        assertEquals(2, cartService.addToCart("customer2", "product456", 2).getQuantity());
+        assertEquals(1, stockReservations.availableToSell("product456", 3));
+    }
+
+    @Test
+    public void test_changes_between_flushes_are_written_once() {
+        // Arrange
+        String customerId = "customer123";
+        ProductDTO first = createMockProduct("product1");
+        ProductDTO second = createMockProduct("product2");
+
+        when(usersRepository.existsById(customerId)).thenReturn(true);
+        when(productCatalog.isLoaded()).thenReturn(true);
+        when(productCatalog.findById("product1")).thenReturn(Optional.of(first));
+        when(productCatalog.findById("product2")).thenReturn(Optional.of(second));
+
+        // Act
+        cartService.addToCart(customerId, "product1", 1);
+        cartService.addToCart(customerId, "product1", 2);
+        cartService.addToCart(customerId, "product2", 1);
+        cartStore.flush();
+        cartStore.flush();
+
+        // Assert
+        verify(cartItemRepository, times(1)).replaceCarts(anyMap());
+        verify(cartItemRepository).replaceCarts(Map.of(customerId, Map.of("product1", 3, "product2", 1)));
+    }
+
 
 
-    private Users createMockUser(String customerId) {
-        Users user = new Users("1", "customer", "hoangmanh", "manhlun123");
-        user.setId(customerId);
-        return user;
+    @Test
+    public void test_batch_operations_apply_together_or_not_at_all() {
+        // Arrange
+        String customerId = "customer123";
+        ProductDTO first = createMockProduct("product1");
+        ProductDTO second = createMockProduct("product2");
+
+        when(cartItemRepository.findQuantitiesByCustomerId(customerId))
+                .thenReturn(List.<Object[]>of(new Object[]{"product1", 1}, new Object[]{"product3", 2}));
+        when(productCatalog.isLoaded()).thenReturn(true);
+        when(productCatalog.findById("product1")).thenReturn(Optional.of(first));
+        when(productCatalog.findById("product2")).thenReturn(Optional.of(second));
+
+        // Act & Assert: the last operation exceeds the stock of 10, so nothing changes
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> cartService.applyOperations(customerId, List.of(
+                new CartOperationDTO("remove", "product3", null),
+                new CartOperationDTO("add", "product1", 4),
+                new CartOperationDTO("add", "product1", 6))));
+        assertEquals("Not enough stock available for product1. Available: 10", ex.getMessage());
+        assertEquals(Map.of("product1", 1, "product3", 2), cartStore.getItems(customerId));
+
+        List<CartItemDTO> result = cartService.applyOperations(customerId, List.of(
+                new CartOperationDTO("remove", "product3", null),
+                new CartOperationDTO("add", "product1", 4),
+                new CartOperationDTO("set", "product2", 3)));
+
+        assertEquals(Map.of("product1", 5, "product2", 3), cartStore.getItems(customerId));
+        assertEquals(2, result.size());
+        assertEquals(5, result.get(0).getQuantity());
+        assertEquals(3, result.get(1).getQuantity());
     }
 
-    private Product createMockProduct(String productId) {
-        Product product = new Product();
+    private ProductDTO createMockProduct(String productId) {
+        ProductDTO product = new ProductDTO();
         product.setProductID(productId);
         product.setTitle("Test Product");
         product.setPrice(19.99);
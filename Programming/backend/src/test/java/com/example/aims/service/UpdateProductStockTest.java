@@ -0,0 +1,121 @@
+package com.example.aims.service;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.factory.ProductFactory;
+import com.example.aims.mapper.ProductMapper;
+import com.example.aims.model.Book;
+import com.example.aims.repository.ProductRepository;
+import com.example.aims.repository.ProductStockShardRepository;
+import com.example.aims.service.inventory.HotStockService;
+import com.example.aims.service.inventory.InventoryLedgerService;
+import com.example.aims.validator.ProductValidator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UpdateProductStockTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductValidator productValidator;
+
+    @Spy
+    private ProductFactory productFactory;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ProductStockShardRepository shardRepository = mock(ProductStockShardRepository.class);
+
+    @Spy
+    private HotStockService hotStockService = new HotStockService(shardRepository, mock(ProductRepository.class),
+            mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class));
+
+    @Mock
+    private InventoryLedgerService inventoryLedger;
+
+    @InjectMocks
+    private ProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() {
+        when(shardRepository.findShardCounts()).thenReturn(Map.of("P001", 4));
+        hotStockService.onApplicationReady();
+        // Stands in for the update's transaction
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    // The shards hold 7 after sales since the last reconcile; Product.quantity still says 10
+    @Test
+    void testUpdateProduct_HotProductQuantityUnchanged_LeavesShardsAlone() {
+        when(productRepository.findById("P001")).thenReturn(Optional.of(createBook(10)));
+        when(productMapper.toDTO(any())).thenReturn(createDTO(10));
+
+        productService.updateProduct("P001", createDTO(10));
+
+        verify(shardRepository, never()).merge(any());
+        verify(shardRepository, never()).split(any(), anyInt(), anyInt());
+        verifyNoInteractions(inventoryLedger);
+    }
+
+    @Test
+    void testUpdateProduct_HotProductQuantityChanged_AppliesOnlyTheEdit() {
+        when(productRepository.findById("P001")).thenReturn(Optional.of(createBook(10)));
+        when(productMapper.toDTO(any())).thenReturn(createDTO(12));
+        when(shardRepository.merge("P001")).thenReturn(7);
+
+        productService.updateProduct("P001", createDTO(12));
+
+        InOrder order = inOrder(hotStockService, productRepository, shardRepository);
+        order.verify(hotStockService).beforeQuantitySet();
+        order.verify(productRepository).saveAndFlush(any());
+        order.verify(shardRepository).split("P001", 9, 4);
+        verify(inventoryLedger).recordQuantitySet("P001", 10, 12);
+    }
+
+    private Book createBook(Integer quantity) {
+        Book book = new Book();
+        book.setProductID("P001");
+        book.setCategory("book");
+        book.setQuantity(quantity);
+        book.setVersion(1L);
+        return book;
+    }
+
+    private ProductDTO createDTO(Integer quantity) {
+        ProductDTO dto = new ProductDTO();
+        dto.setProductID("P001");
+        dto.setCategory("book");
+        dto.setTitle("Sách");
+        dto.setQuantity(quantity);
+        dto.setVersion(1L);
+        return dto;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.aims.service;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.exception.ConflictException;
+import com.example.aims.model.Product;
+import com.example.aims.repository.ProductRepository;
+import com.example.aims.validator.ProductValidator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UpdateProductVersionTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductValidator productValidator;
+
+    @InjectMocks
+    private ProductServiceImpl productService;
+
+    @Test
+    void testUpdateProduct_WithoutVersion_ThrowsBadRequest() {
+        ProductDTO dto = createDTO(null);
+
+        assertThrows(BadRequestException.class, () -> productService.updateProduct("P001", dto));
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void testUpdateProduct_StaleVersion_ThrowsConflict() {
+        Product existing = new Product();
+        existing.setProductID("P001");
+        existing.setVersion(3L);
+        when(productRepository.findById("P001")).thenReturn(Optional.of(existing));
+
+        assertThrows(ConflictException.class, () -> productService.updateProduct("P001", createDTO(2L)));
+        verify(productRepository, never()).saveAndFlush(any());
+    }
+
+    private ProductDTO createDTO(Long version) {
+        ProductDTO dto = new ProductDTO();
+        dto.setProductID("P001");
+        dto.setCategory("book");
+        dto.setTitle("Sách");
+        dto.setVersion(version);
+        return dto;
+    }
+}
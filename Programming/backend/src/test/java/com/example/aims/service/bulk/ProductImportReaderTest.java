@@ -0,0 +1,64 @@
+package com.example.aims.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductImportReaderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testCsvQuotedFieldsAndRowErrors() throws IOException {
+        String csv = "productID,category,title,price,description\n"
+                + "B1,book,\"Sách, tập 1\",120000,\"Dòng một\nDòng \"\"hai\"\"\"\n"
+                + "\n"
+                + "B2,book,Thiếu cột\n"
+                + "B3,cd,Album,abc,\n";
+        ProductImportReader reader = reader(csv, ProductImportReader.Format.CSV);
+
+        ProductImportReader.Row first = reader.next();
+        assertEquals(2, first.getLine());
+        assertEquals("Sách, tập 1", first.getProduct().getTitle());
+        assertEquals(120000.0, first.getProduct().getPrice());
+        assertEquals("Dòng một\nDòng \"hai\"", first.getProduct().getDescription());
+
+        // The quoted description spans lines 2-3 and line 4 is blank
+        ProductImportReader.Row shortRow = reader.next();
+        assertEquals(5, shortRow.getLine());
+        assertNull(shortRow.getProduct());
+        assertNotNull(shortRow.getError());
+
+        ProductImportReader.Row badPrice = reader.next();
+        assertEquals(6, badPrice.getLine());
+        assertNotNull(badPrice.getError());
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testNdjsonReportsInvalidLines() throws IOException {
+        String ndjson = "{\"productID\":\"C1\",\"category\":\"cd\",\"artist\":\"Queen\"}\n"
+                + "{not json}\n";
+        ProductImportReader reader = reader(ndjson, ProductImportReader.Format.NDJSON);
+
+        ProductImportReader.Row first = reader.next();
+        assertEquals("Queen", first.getProduct().getArtist());
+
+        ProductImportReader.Row second = reader.next();
+        assertEquals(2, second.getLine());
+        assertNull(second.getProduct());
+
+        assertNull(reader.next());
+    }
+
+    private ProductImportReader reader(String content, ProductImportReader.Format format) {
+        return new ProductImportReader(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                format, objectMapper);
+    }
+}
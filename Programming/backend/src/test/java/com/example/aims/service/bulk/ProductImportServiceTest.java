@@ -0,0 +1,77 @@
+package com.example.aims.service.bulk;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.ProductImportErrorDTO;
+import com.example.aims.dto.ProductImportResultDTO;
+import com.example.aims.repository.ProductRepository;
+import com.example.aims.repository.UsersRepository;
+import com.example.aims.service.inventory.InventoryLedgerService;
+import com.example.aims.validator.ProductValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ProductImportServiceTest {
+    private ProductRepository productRepository;
+    private ProductImportService importService;
+
+    @BeforeEach
+    public void setUp() {
+        productRepository = mock(ProductRepository.class);
+        UsersRepository usersRepository = mock(UsersRepository.class);
+        when(usersRepository.existsById("M1")).thenReturn(true);
+        when(productRepository.findExistingIds(anyCollection())).thenReturn(Set.of());
+        importService = new ProductImportService(productRepository, usersRepository, new ObjectMapper(),
+                mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class),
+                mock(InventoryLedgerService.class), new ProductValidator(productRepository));
+    }
+
+    @Test
+    public void testInvalidFieldsAreRejectedBeforeInsert() {
+        ProductImportResultDTO result = importCsv("productID,category,title,price,quantity\n"
+                + "B1,book,Sách,1000,5\n"
+                + "B2,book,,1000,5\n"
+                + "B3,book,Sách,-1,5\n"
+                + "B4,book,Sách,1000,-5\n");
+
+        assertEquals(4, result.getReceived());
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(3, 4, 5), result.getErrors().stream().map(ProductImportErrorDTO::getLine).toList());
+    }
+
+    @Test
+    public void testRejectedChunkIsRetriedRowByRow() {
+        // The database rejects B2, so every batch containing it fails
+        doThrow(new DataIntegrityViolationException("value too long"))
+                .when(productRepository).insertAllWithDetails(argThat(products -> products.stream()
+                        .map(ProductDTO::getProductID).anyMatch("B2"::equals)), eq("M1"));
+
+        ProductImportResultDTO result = importCsv("productID,category,title,price\n"
+                + "B1,book,Sách,1000\n"
+                + "B2,book,Sách,1000\n"
+                + "B3,cd,Album,1000\n");
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertEquals("B2", result.getErrors().get(0).getProductID());
+    }
+
+    private ProductImportResultDTO importCsv(String csv) {
+        return importService.importProducts(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                ProductImportReader.Format.CSV, "M1");
+    }
+}
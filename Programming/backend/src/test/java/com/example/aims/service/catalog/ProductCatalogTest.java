@@ -0,0 +1,87 @@
+package com.example.aims.service.catalog;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.repository.ProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class ProductCatalogTest {
+    private ProductRepository productRepository;
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    public void setUp() {
+        productRepository = mock(ProductRepository.class);
+        catalog = new ProductCatalog(productRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    public void testOlderProductVersionIsIgnored() {
+        streamProducts(List.of(createProduct("P1", 10, 1L)));
+        catalog.rebuild();
+
+        // Two checkouts whose after-commit events arrive in reverse order
+        catalog.onProductChanged(ProductChangedEvent.updated(createProduct("P1", 6, 3L)));
+        catalog.onProductChanged(ProductChangedEvent.updated(createProduct("P1", 8, 2L)));
+
+        assertEquals(6, catalog.findById("P1").orElseThrow().getQuantity());
+    }
+
+    @Test
+    public void testUpdateArrivingAfterDeleteIsIgnored() {
+        streamProducts(List.of(createProduct("P1", 10, 1L)));
+        catalog.rebuild();
+
+        // A checkout commits version 2, then the product is deleted at version 3; the checkout's event comes last
+        catalog.onProductChanged(ProductChangedEvent.deleted("P1", 3L));
+        catalog.onProductChanged(ProductChangedEvent.updated(createProduct("P1", 8, 2L)));
+
+        assertTrue(catalog.findById("P1").isEmpty());
+    }
+
+    @Test
+    public void testChangeCommittedDuringRebuildIsKept() {
+        streamProducts(List.of(createProduct("P1", 10, 1L)));
+        catalog.rebuild();
+
+        // The stream reads P1 before a checkout commits, and the change arrives while the stream still runs
+        doAnswer(invocation -> {
+            Consumer<ProductDTO> action = invocation.getArgument(1);
+            action.accept(createProduct("P1", 10, 1L));
+            catalog.onProductChanged(ProductChangedEvent.updated(createProduct("P1", 7, 2L)));
+            assertEquals(7, catalog.findById("P1").orElseThrow().getQuantity());
+            return null;
+        }).when(productRepository).streamWithDetails(anyInt(), any());
+        catalog.rebuild();
+
+        assertEquals(7, catalog.findById("P1").orElseThrow().getQuantity());
+    }
+
+    private void streamProducts(List<ProductDTO> products) {
+        doAnswer(invocation -> {
+            Consumer<ProductDTO> action = invocation.getArgument(1);
+            products.forEach(action);
+            return null;
+        }).when(productRepository).streamWithDetails(anyInt(), any());
+    }
+
+    private ProductDTO createProduct(String id, int quantity, Long version) {
+        ProductDTO product = new ProductDTO();
+        product.setProductID(id);
+        product.setCategory("book");
+        product.setQuantity(quantity);
+        product.setVersion(version);
+        return product;
+    }
+}
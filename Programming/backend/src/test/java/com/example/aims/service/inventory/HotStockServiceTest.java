@@ -0,0 +1,92 @@
+package com.example.aims.service.inventory;
+
+import com.example.aims.repository.ProductRepository;
+import com.example.aims.repository.ProductStockShardRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class HotStockServiceTest {
+    private final ProductStockShardRepository shardRepository = mock(ProductStockShardRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private HotStockService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new HotStockService(shardRepository, productRepository,
+                mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class));
+        when(shardRepository.findShardCounts()).thenReturn(Map.of("hot", 4));
+        service.onApplicationReady();
+        // Stands in for the checkout transaction
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void testHotProductsAreTakenFromShards() {
+        when(productRepository.decrementStock(Map.of("regular", 1))).thenReturn(List.of());
+        when(shardRepository.decrementShard(eq("hot"), anyInt(), eq(2))).thenReturn(true);
+
+        assertTrue(service.decrementStock(Map.of("regular", 1, "hot", 2)).isEmpty());
+
+        verify(productRepository).decrementStock(Map.of("regular", 1));
+        verify(shardRepository, never()).decrementAcrossShards(anyString(), anyInt());
+    }
+
+    @Test
+    public void testLowShardFallsBackToAllShards() {
+        when(shardRepository.decrementShard(eq("hot"), anyInt(), eq(5))).thenReturn(false);
+        when(shardRepository.decrementAcrossShards("hot", 5)).thenReturn(false);
+
+        assertEquals(List.of("hot"), service.decrementStock(Map.of("hot", 5)));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    public void testModeSwitchWaitsForQuantitySet() throws Exception {
+        when(shardRepository.lockProductQuantity("hot")).thenReturn(10);
+        service.beforeQuantitySet();
+
+        Thread disable = new Thread(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                service.disable("hot");
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+        disable.start();
+        disable.join(200);
+        assertTrue(disable.isAlive());
+        verify(shardRepository, never()).lockProductQuantity("hot");
+
+        // The quantity set re-splits while the product is still hot, then its transaction ends
+        service.onQuantitySet("hot", 10);
+        verify(shardRepository).split("hot", 10, 4);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        disable.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(disable.isAlive());
+        verify(shardRepository).setProductQuantity(eq("hot"), anyInt());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.aims.service.inventory;
+
+import com.example.aims.repository.InventoryLedgerRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class InventoryLedgerServiceTest {
+    private final InventoryLedgerRepository repository = mock(InventoryLedgerRepository.class);
+    private final InventoryLedgerService service = new InventoryLedgerService(repository, mock(PlatformTransactionManager.class));
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testMovementsAreWrittenAsOneBatchBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.record("p1", -2, InventoryLedgerService.Reason.SALE, "order1");
+        service.recordQuantitySet("p2", 5, 5);
+        service.recordQuantitySet("p2", 5, 8);
+        verifyNoInteractions(repository);
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        verify(repository, times(1)).appendAll(argThat(movements -> movements.size() == 2
+                && movements.get(0).getDelta() == -2 && "SALE".equals(movements.get(0).getReason())
+                && movements.get(1).getDelta() == 3 && "RESTOCK".equals(movements.get(1).getReason())));
+    }
+
+    @Test
+    public void testRecordingOutsideTransactionFails() {
+        assertThrows(IllegalStateException.class,
+                () -> service.record("p1", 1, InventoryLedgerService.Reason.RESTOCK, null));
+    }
+}
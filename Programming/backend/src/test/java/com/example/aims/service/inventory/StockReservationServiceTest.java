@@ -0,0 +1,65 @@
+package com.example.aims.service.inventory;
+
+import com.example.aims.exception.BadRequestException;
+import com.example.aims.repository.StockReservationRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class StockReservationServiceTest {
+    private final StockReservationRepository repository = mock(StockReservationRepository.class);
+
+    @Test
+    public void testReserveAllIsAllOrNothing() {
+        StockReservationService service = service(Duration.ofMinutes(15));
+        service.reserve("other", "p2", 4, 5);
+
+        assertThrows(BadRequestException.class, () ->
+                service.reserveAll("customer", Map.of("p1", 2, "p2", 2), Map.of("p1", 5, "p2", 5)));
+
+        assertEquals(5, service.availableToSell("p1", 5));
+        assertEquals(1, service.availableToSell("p2", 5));
+    }
+
+    @Test
+    public void testExpiredHoldsAreReleasedAndDeleted() throws InterruptedException {
+        StockReservationService service = service(Duration.ofMillis(1));
+        service.reserve("customer", "p1", 3, 3);
+        assertEquals(0, service.availableToSell("p1", 3));
+
+        Thread.sleep(5);
+        service.tick();
+
+        assertEquals(3, service.availableToSell("p1", 3));
+        verify(repository).deleteAll(argThat(keys -> keys.size() == 1
+                && List.of("customer", "p1").equals(List.of(keys.get(0)))));
+    }
+
+    @Test
+    public void testProductWithoutHoldsIsDropped() {
+        StockReservationService service = service(Duration.ofMinutes(15));
+        service.reserve("customer", "p1", 2, 5);
+        service.reserve("other", "p1", 1, 5);
+
+        service.release("customer", "p1");
+        assertEquals(1, service.heldProductCount());
+        service.releaseAll("other");
+        assertEquals(0, service.heldProductCount());
+
+        service.reserve("customer", "p1", 5, 5);
+        assertEquals(0, service.availableToSell("p1", 5));
+    }
+
+    private StockReservationService service(Duration ttl) {
+        return new StockReservationService(repository, mock(PlatformTransactionManager.class), ttl, Duration.ofMillis(1));
+    }
+}
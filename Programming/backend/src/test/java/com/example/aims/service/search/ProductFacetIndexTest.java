@@ -0,0 +1,81 @@
+package com.example.aims.service.search;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.repository.ProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ProductFacetIndexTest {
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new ProductFacetIndex(mock(ProductRepository.class), mock(PlatformTransactionManager.class));
+        index.replaceAll(List.of(
+                createProduct("B1", "book", "Fiction", 50000.0),
+                createProduct("B2", "book", "Drama", 150000.0),
+                createProduct("B3", "book", "Fiction", 350000.0),
+                createProduct("C1", "cd", null, 80000.0)));
+    }
+
+    @Test
+    public void testCountsExcludeTheFacetsOwnFilter() {
+        ProductFacetIndex.Result result = index.query(Map.of(
+                "genre", List.of("Fiction", "Drama"),
+                "priceBand", List.of("0-100000", "100000-300000")));
+
+        assertEquals(List.of("B1", "B2"), result.getProductIds());
+        // Genre counts apply only the price filter: B1, B2 and C1 (which has no genre)
+        assertEquals(Map.of("Fiction", 1, "Drama", 1), result.getCounts().get("genre"));
+        // Price counts apply only the genre filter: B1, B2 and B3
+        assertEquals(Map.of("0-100000", 1, "100000-300000", 1, "300000-500000", 1),
+                result.getCounts().get("priceBand"));
+        // Other facets apply every filter
+        assertEquals(Map.of("book", 2), result.getCounts().get("category"));
+    }
+
+    @Test
+    public void testReusedOrdinalDoesNotKeepOldValues() {
+        index.remove("B1");
+        // Takes the ordinal B1 freed
+        index.index(createProduct("D1", "dvd", null, 600000.0));
+
+        ProductFacetIndex.Result fiction = index.query(Map.of("genre", List.of("Fiction")));
+        assertEquals(List.of("B3"), fiction.getProductIds());
+
+        ProductFacetIndex.Result dvds = index.query(Map.of("category", List.of("dvd")));
+        assertEquals(List.of("D1"), dvds.getProductIds());
+        assertEquals(Map.of("500000+", 1), dvds.getCounts().get("priceBand"));
+        assertEquals(Map.of("book", 2, "cd", 1, "dvd", 1), dvds.getCounts().get("category"));
+
+        assertEquals(4, index.query(Map.of()).getProductIds().size());
+        assertFalse(index.query(Map.of()).getProductIds().contains("B1"));
+    }
+
+    @Test
+    public void testOneOffQueryMatchesLiveIndex() {
+        ProductFacetIndex.Result result = ProductFacetIndex.query(List.of(
+                createProduct("B1", "book", "Fiction", 50000.0),
+                createProduct("C1", "cd", null, 80000.0)), Map.of("category", List.of("cd")));
+
+        assertEquals(List.of("C1"), result.getProductIds());
+        assertEquals(Map.of("book", 1, "cd", 1), result.getCounts().get("category"));
+    }
+
+    private ProductDTO createProduct(String id, String category, String genre, Double price) {
+        ProductDTO product = new ProductDTO();
+        product.setProductID(id);
+        product.setCategory(category);
+        product.setGenre(genre);
+        product.setPrice(price);
+        return product;
+    }
+}
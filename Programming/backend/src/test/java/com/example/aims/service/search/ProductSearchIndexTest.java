@@ -0,0 +1,81 @@
+package com.example.aims.service.search;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.repository.ProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ProductSearchIndexTest {
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new ProductSearchIndex(mock(ProductRepository.class), mock(PlatformTransactionManager.class));
+
+        ProductDTO book = createProduct("B1", "Đắc Nhân Tâm", "Sách kỹ năng sống");
+        book.setAuthors("Dale Carnegie");
+        ProductDTO cd = createProduct("C1", "Queen Greatest Hits", "Best of the band");
+        cd.setArtist("Queen");
+        ProductDTO dvd = createProduct("D1", "Avengers", "A Queen appears briefly");
+        dvd.setDirector("Russo");
+
+        index.replaceAll(List.of(book, cd, dvd));
+    }
+
+    @Test
+    public void testSearchFoldsVietnameseDiacritics() {
+        assertEquals(List.of("B1"), index.search("dac nhan tam"));
+        assertEquals(List.of("B1"), index.search("ĐẮC"));
+    }
+
+    @Test
+    public void testSearchCoversDetailFieldsAndRanks() {
+        // A title match outranks a single mention in a description
+        assertEquals(List.of("C1", "D1"), index.search("queen"));
+        assertEquals(List.of("B1"), index.search("carnegie"));
+        assertEquals(List.of("D1"), index.search("russo"));
+    }
+
+    @Test
+    public void testSearchMatchesLastWordAsPrefix() {
+        assertEquals(List.of("D1"), index.search("aven"));
+        assertTrue(index.search("xyz").isEmpty());
+    }
+
+    @Test
+    public void testSearchPageContinuesAfterCursor() {
+        List<ProductSearchIndex.Hit> first = index.searchPage("queen", 0, null, 1);
+        assertEquals("C1", first.get(0).getProductId());
+
+        ProductSearchIndex.Hit last = first.get(0);
+        List<ProductSearchIndex.Hit> second = index.searchPage("queen", last.getScore(), last.getProductId(), 1);
+        assertEquals("D1", second.get(0).getProductId());
+        assertTrue(index.searchPage("queen", second.get(0).getScore(), "D1", 1).isEmpty());
+    }
+
+    @Test
+    public void testIndexAndRemoveAreIncremental() {
+        ProductDTO renamed = createProduct("C1", "Innuendo", "");
+        index.index(renamed);
+        assertEquals(List.of("C1"), index.search("innuendo"));
+        assertTrue(index.search("greatest").isEmpty());
+
+        index.remove("C1");
+        assertTrue(index.search("innuendo").isEmpty());
+    }
+
+    private ProductDTO createProduct(String id, String title, String description) {
+        ProductDTO product = new ProductDTO();
+        product.setProductID(id);
+        product.setTitle(title);
+        product.setDescription(description);
+        return product;
+    }
+}
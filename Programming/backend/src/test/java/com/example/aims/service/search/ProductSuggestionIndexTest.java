@@ -0,0 +1,91 @@
+package com.example.aims.service.search;
+
+import com.example.aims.dto.ProductDTO;
+import com.example.aims.dto.SuggestionDTO;
+import com.example.aims.event.OrderPlacedEvent;
+import com.example.aims.event.ProductChangedEvent;
+import com.example.aims.repository.OrderItemRepository;
+import com.example.aims.repository.ProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ProductSuggestionIndexTest {
+    private ProductSuggestionIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new ProductSuggestionIndex(mock(ProductRepository.class), mock(OrderItemRepository.class),
+                mock(PlatformTransactionManager.class));
+
+        ProductDTO potter = createProduct("B1", "Harry Potter");
+        potter.setAuthors("J. K. Rowling");
+        ProductDTO hobbit = createProduct("B2", "The Hobbit");
+        hobbit.setAuthors("Tolkien");
+        ProductDTO hits = createProduct("C1", "Hải Phòng Hits");
+        hits.setArtist("Hà Anh Tuấn");
+
+        index.replaceAll(List.of(potter, hobbit, hits), Map.of("B1", 10L, "C1", 50L));
+    }
+
+    @Test
+    public void testSuggestRanksByPopularity() {
+        List<SuggestionDTO> result = index.suggest("h", 10);
+
+        // The artist inherits the units sold of the CD, ties are ordered by text
+        assertEquals("Hà Anh Tuấn", result.get(0).getText());
+        assertEquals("Hải Phòng Hits", result.get(1).getText());
+        assertEquals("Harry Potter", result.get(2).getText());
+        assertEquals(2, index.suggest("h", 2).size());
+    }
+
+    @Test
+    public void testSuggestMatchesInnerTitleWordsAndFoldedNames() {
+        assertEquals("The Hobbit", index.suggest("hobb", 5).get(0).getText());
+        assertEquals("artist", index.suggest("ha anh", 5).get(0).getType());
+        assertTrue(index.suggest("zzz", 5).isEmpty());
+    }
+
+    @Test
+    public void testCommittedOrdersRaisePopularity() {
+        index.onOrderPlaced(new OrderPlacedEvent("O1", Map.of("B2", 100)));
+
+        List<SuggestionDTO> result = index.suggest("t", 10);
+        assertEquals("The Hobbit", result.get(0).getText());
+        assertEquals(100, result.get(0).getPopularity());
+        assertEquals("Tolkien", result.get(1).getText());
+        assertEquals(100, result.get(1).getPopularity());
+    }
+
+    @Test
+    public void testProductChangesUpdateOnlyTheirEntries() {
+        ProductDTO renamed = createProduct("B2", "The Silmarillion");
+        renamed.setAuthors("Christopher Tolkien");
+        index.onProductChanged(ProductChangedEvent.updated(renamed));
+
+        assertTrue(index.suggest("hobb", 5).isEmpty());
+        assertEquals("The Silmarillion", index.suggest("silm", 5).get(0).getText());
+        assertEquals("Christopher Tolkien", index.suggest("chris", 5).get(0).getText());
+        // The old author has no product left
+        assertTrue(index.suggest("tolkien", 5).isEmpty());
+        assertEquals("Harry Potter", index.suggest("potter", 5).get(0).getText());
+
+        index.onProductChanged(ProductChangedEvent.deleted("B1", 1L));
+        assertTrue(index.suggest("potter", 5).isEmpty());
+        assertTrue(index.suggest("rowling", 5).isEmpty());
+    }
+
+    private ProductDTO createProduct(String id, String title) {
+        ProductDTO product = new ProductDTO();
+        product.setProductID(id);
+        product.setTitle(title);
+        return product;
+    }
+}